@@ -0,0 +1,240 @@
+package main.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Runs benchmarks and prints their timings. Each benchmark is warmed up
+ * so the JIT has compiled it, then timed over several fixed length
+ * iterations. Alongside the time per operation it reports the bytes
+ * allocated per operation and the garbage collections run while it was
+ * measured, where the JVM supports measuring them.
+ *
+ * @author Owen Frere
+ * @throws IllegalArgumentException (unchecked) on invalid run settings
+ */
+public class BenchRunner
+{
+    private int warmupIters;
+    private int measureIters;
+    private long iterNanos;
+    private ThreadMXBean threads;
+    private List<GarbageCollectorMXBean> collectors;
+    //results are summed here so the JIT cannot drop the work
+    private double sink;
+
+    /**
+     * Constructor
+     * @param warmupIters as int, untimed iterations run first
+     * @param measureIters as int, timed iterations
+     * @param iterMillis as int, length of each iteration
+     */
+    public BenchRunner(int warmupIters, int measureIters, int iterMillis)
+    {
+        if (warmupIters < 0 || measureIters < 1 || iterMillis < 1)
+        {
+            throw new IllegalArgumentException("Invalid run settings");
+        }
+
+        this.warmupIters = warmupIters;
+        this.measureIters = measureIters;
+        this.iterNanos = iterMillis * 1000000L;
+        this.threads = ManagementFactory.getThreadMXBean();
+        this.collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    }
+
+    /**
+     * Prints the column headings of the results
+     */
+    public void printHeader()
+    {
+        System.out.println(String.format("%-28s %14s %10s %12s %6s %8s",
+            "Benchmark", "ns/op", "error", "B/op", "gc", "gc ms"));
+    }
+
+    /**
+     * Sets up, warms up and measures a benchmark then prints its result,
+     * or why it failed
+     * @param bench as Benchmark
+     */
+    public void run(Benchmark bench)
+    {
+        try
+        {
+            measure(bench);
+        }
+        catch (Exception e)
+        {
+            System.out.println(bench.getName() + " failed: " + e);
+        }
+    }
+
+    /**
+     * Sets up, warms up and measures a benchmark then prints its result
+     * @param bench as Benchmark
+     * @throws Exception if the benchmark fails
+     */
+    private void measure(Benchmark bench)
+        throws Exception
+    {
+        double[] nsPerOp = new double[measureIters];
+        long batch = 1;
+        long ops = 0;
+        long allocStart, allocEnd, gcRuns, gcTime, start, iterOps;
+        double mean, error;
+
+        bench.setup();
+
+        for (int ii = 0; ii < warmupIters; ii++)
+        {
+            batch = calibrate(bench, batch);
+        }
+
+        allocStart = allocatedBytes();
+        gcRuns = -gcCount();
+        gcTime = -gcMillis();
+        for (int ii = 0; ii < measureIters; ii++)
+        {
+            start = System.nanoTime();
+            iterOps = iterate(bench, batch);
+            nsPerOp[ii] = (double)(System.nanoTime() - start) / iterOps;
+            ops += iterOps;
+        }
+        allocEnd = allocatedBytes();
+        gcRuns += gcCount();
+        gcTime += gcMillis();
+
+        mean = 0.0;
+        for (double ns : nsPerOp)
+        {
+            mean += ns / measureIters;
+        }
+        error = 0.0;
+        for (double ns : nsPerOp)
+        {
+            error += (ns - mean) * (ns - mean);
+        }
+        error = Math.sqrt(error / measureIters);
+
+        System.out.println(String.format("%-28s %14.1f %10.1f %12s %6d %8d",
+            bench.getName(), mean, error,
+            allocStart < 0 ? "n/a" : String.format("%.1f",
+                (double)(allocEnd - allocStart) / ops),
+            gcRuns, gcTime));
+    }
+
+    /**
+     * Runs a warm up iteration, doubling the number of operations timed
+     * together while they take too little time for the clock to measure
+     * well
+     * @param bench as Benchmark
+     * @param batch as long, operations run between clock reads
+     * @return batch size to measure with
+     * @throws Exception if the benchmark fails
+     */
+    private long calibrate(Benchmark bench, long batch)
+        throws Exception
+    {
+        long start = System.nanoTime();
+        long batchStart;
+
+        do
+        {
+            batchStart = System.nanoTime();
+            for (long ii = 0; ii < batch; ii++)
+            {
+                sink += bench.run();
+            }
+            if (System.nanoTime() - batchStart < iterNanos / 100)
+            {
+                batch *= 2;
+            }
+        }
+        while (System.nanoTime() - start < iterNanos);
+
+        return batch;
+    }
+
+    /**
+     * Runs the operation in batches until an iteration's time is up
+     * @param bench as Benchmark
+     * @param batch as long, operations run between clock reads
+     * @return operations run
+     * @throws Exception if the benchmark fails
+     */
+    private long iterate(Benchmark bench, long batch)
+        throws Exception
+    {
+        long start = System.nanoTime();
+        long ops = 0;
+
+        do
+        {
+            for (long ii = 0; ii < batch; ii++)
+            {
+                sink += bench.run();
+            }
+            ops += batch;
+        }
+        while (System.nanoTime() - start < iterNanos);
+
+        return ops;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far, or -1 if
+     * the JVM cannot measure it
+     * @return bytes allocated
+     */
+    private long allocatedBytes()
+    {
+        com.sun.management.ThreadMXBean allocs;
+
+        if (threads instanceof com.sun.management.ThreadMXBean)
+        {
+            allocs = (com.sun.management.ThreadMXBean)threads;
+            if (allocs.isThreadAllocatedMemorySupported() &&
+                allocs.isThreadAllocatedMemoryEnabled())
+            {
+                return allocs.getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the number of garbage collections run so far
+     * @return collections run
+     */
+    private long gcCount()
+    {
+        long count = 0;
+
+        for (GarbageCollectorMXBean gc : collectors)
+        {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the milliseconds spent in garbage collection so far
+     * @return collection time
+     */
+    private long gcMillis()
+    {
+        long millis = 0;
+
+        for (GarbageCollectorMXBean gc : collectors)
+        {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+
+        return millis;
+    }
+}
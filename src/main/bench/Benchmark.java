@@ -0,0 +1,49 @@
+package main.bench;
+
+/**
+ * Abstract super class for a benchmark run by the BenchRunner. A
+ * benchmark is one operation repeated many times, its result is summed
+ * by the runner so the operation cannot be optimised away.
+ *
+ * @author Owen Frere
+ */
+public abstract class Benchmark
+{
+    private String name;
+
+    /**
+     * Constructor
+     * @param name as String
+     */
+    public Benchmark(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name the benchmark is reported and selected by
+     * @return name of benchmark
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Prepares anything the operation needs, called once before the
+     * benchmark is run and not timed
+     * @throws Exception if the benchmark cannot be prepared
+     */
+    public void setup()
+        throws Exception
+    {
+    }
+
+    /**
+     * Performs the operation once
+     * @return any value depending on the work done
+     * @throws Exception if the operation fails
+     */
+    public abstract double run()
+        throws Exception;
+}
@@ -0,0 +1,899 @@
+package main.bench;
+
+import java.text.DecimalFormat;
+import java.util.*;
+
+import main.control.*;
+import main.model.*;
+import main.view.View;
+
+/**
+ * Benchmarks of the model and geometry hot paths. Run with the name of a
+ * benchmark, or part of one, to run only the matching benchmarks. Give
+ * the JVM a large enough heap for the huge catalogue, -Xmx2g is plenty.
+ *
+ * @author Owen Frere
+ */
+public class Benchmarks
+{
+    private static final long SEED = 42L;
+    private static final int BATCH = 16;
+
+    public static void main(String[] args)
+    {
+        BenchRunner runner = new BenchRunner(5, 10, 500);
+        List<Benchmark> benches = new ArrayList<Benchmark>();
+        String filter = args.length > 0 ? args[0] : "";
+
+        benches.add(distance("distance.cosine",
+            new CosineDistance(6371000.0)));
+        benches.add(distance("distance.haversine",
+            new HaversineDistance(6371000.0)));
+        benches.add(distance("distance.equirectangular",
+            new EquirectangularDistance(6371000.0)));
+        benches.add(distance("distance.vincenty", new VincentyDistance()));
+        benches.add(proximity("proximity.cosine",
+            new CosineDistance(6371000.0), false));
+        benches.add(proximity("proximity.equirectangular",
+            new EquirectangularDistance(6371000.0), false));
+        benches.add(proximity("proximity.unitVector",
+            new EquirectangularDistance(6371000.0), true));
+        benches.add(mapCreate("mapCreate.small",
+            new CatalogueGenerator(100, 10, 2, SEED)));
+        benches.add(mapCreate("mapCreate.medium",
+            new CatalogueGenerator(2000, 20, 4, SEED)));
+        benches.add(mapCreate("mapCreate.huge",
+            new CatalogueGenerator(20000, 25, 8, SEED)));
+        benches.add(decimal("parse.decimalParser", false));
+        benches.add(decimal("parse.parseDouble", true));
+        benches.add(tokenizer());
+        benches.add(splitReader());
+        benches.add(menuAggregates());
+        benches.add(menuRender());
+        benches.add(routeLength());
+        benches.add(routeSegments());
+        benches.add(routeIterator());
+        benches.add(routeEquals());
+        benches.add(calculatedTrek());
+        benches.add(gpsChanged());
+        benches.add(gpsBatch());
+        benches.add(project());
+        benches.add(filterChain());
+
+        runner.printHeader();
+        for (Benchmark bench : benches)
+        {
+            if (bench.getName().contains(filter))
+            {
+                runner.run(bench);
+            }
+        }
+    }
+
+    /**
+     * GeoUtils.calcMetresDistance with the given model, over pairs of
+     * locations about a kilometre apart
+     * @param name as String
+     * @param model as DistanceModel
+     * @return benchmark
+     */
+    private static Benchmark distance(String name, final DistanceModel model)
+    {
+        return new Benchmark(name)
+        {
+            private GeoUtils geoUtil;
+            private double[] lats, lons;
+            private int next;
+
+            @Override
+            public void setup()
+            {
+                Random rand = new Random(SEED);
+
+                geoUtil = new GeoUtils();
+                geoUtil.setLengthModel(model);
+                lats = new double[1024];
+                lons = new double[1024];
+                for (int ii = 0; ii < lats.length; ii++)
+                {
+                    lats[ii] = -32.5 + rand.nextDouble();
+                    lons[ii] = 115.5 + rand.nextDouble();
+                }
+            }
+
+            @Override
+            public double run()
+            {
+                int ii = next;
+
+                next = (next + 1) & (lats.length - 1);
+                return geoUtil.calcMetresDistance(lats[ii], lons[ii],
+                    lats[ii] + 0.006, lons[ii] + 0.006);
+            }
+        };
+    }
+
+    /**
+     * GeoUtils.isWithin the horizontal limit for fixes up to twice the
+     * limit from waypoints, with the given proximity model and with or
+     * without unit vectors on the locations
+     * @param name as String
+     * @param model as DistanceModel
+     * @param unitVectors as boolean
+     * @return benchmark
+     */
+    private static Benchmark proximity(String name,
+        final DistanceModel model, final boolean unitVectors)
+    {
+        return new Benchmark(name)
+        {
+            private GeoUtils geoUtil;
+            private GPSLoc[] fixes, waypoints;
+            private double limit;
+            private int next;
+
+            @Override
+            public void setup()
+            {
+                Random rand = new Random(SEED);
+                LocationFactory lFac = new LocationFactory();
+                double lat, lon, dist, bearing;
+
+                geoUtil = new GeoUtils();
+                geoUtil.setProximityModel(model);
+                lFac.setUnitVectors(unitVectors);
+                limit = Settings.getInstance().getHLimit();
+                fixes = new GPSLoc[1024];
+                waypoints = new GPSLoc[1024];
+                for (int ii = 0; ii < fixes.length; ii++)
+                {
+                    lat = -32.5 + rand.nextDouble();
+                    lon = 115.5 + rand.nextDouble();
+                    dist = rand.nextDouble() * 2 * limit / 111195.0;
+                    bearing = rand.nextDouble() * 2 * Math.PI;
+                    waypoints[ii] = lFac.create(lat, lon);
+                    fixes[ii] = lFac.create(lat + dist * Math.cos(bearing),
+                        lon + dist * Math.sin(bearing) /
+                        Math.cos(Math.toRadians(lat)));
+                }
+            }
+
+            @Override
+            public double run()
+            {
+                int ii = next;
+
+                next = (next + 1) & (fixes.length - 1);
+                return geoUtil.isWithin(fixes[ii], waypoints[ii], limit) ?
+                    1 : 0;
+            }
+        };
+    }
+
+    /**
+     * TrekFactory.mapCreate over a whole generated catalogue
+     * @param name as String
+     * @param gen as CatalogueGenerator
+     * @return benchmark
+     */
+    private static Benchmark mapCreate(String name,
+        final CatalogueGenerator gen)
+    {
+        return new Benchmark(name)
+        {
+            private TrekFactory tFac;
+            private String data;
+
+            @Override
+            public void setup()
+            {
+                tFac = newTFac();
+                data = gen.generate();
+            }
+
+            @Override
+            public double run()
+                throws TrekPartException
+            {
+                return tFac.mapCreate(data).size();
+            }
+        };
+    }
+
+    /**
+     * Parsing a coordinate field of route data, with DecimalParser in
+     * place or by decoding a String for Double.parseDouble as the reader
+     * did before DecimalParser
+     * @param name as String
+     * @param slow as boolean, use Double.parseDouble
+     * @return benchmark
+     */
+    private static Benchmark decimal(String name, final boolean slow)
+    {
+        return new Benchmark(name)
+        {
+            private RouteSource src;
+            private int[] starts;
+            private int next;
+
+            @Override
+            public void setup()
+            {
+                Random rand = new Random(SEED);
+                StringBuilder sb = new StringBuilder();
+
+                starts = new int[1025];
+                for (int ii = 0; ii < 1024; ii++)
+                {
+                    starts[ii] = sb.length();
+                    //coordinates to six places, about 10cm, and altitudes
+                    sb.append(ii % 3 == 2 ? 10.0 + rand.nextInt(100) :
+                        Math.round((-32.5 + rand.nextDouble()) * 1e6) / 1e6)
+                        .append(',');
+                }
+                starts[1024] = sb.length();
+                src = new StringRouteSource(sb);
+            }
+
+            @Override
+            public double run()
+            {
+                int ii = next;
+
+                next = (next + 1) & 1023;
+                if (slow)
+                {
+                    return Double.parseDouble(src.decode(starts[ii],
+                        starts[ii + 1] - 1));
+                }
+                return DecimalParser.parse(src, starts[ii],
+                    starts[ii + 1] - 1);
+            }
+        };
+    }
+
+    /**
+     * RouteTokenizer reading a 2000 route catalogue in a single pass,
+     * coordinates parsed in place
+     * @return benchmark
+     */
+    private static Benchmark tokenizer()
+    {
+        return new Benchmark("reader.tokenizer")
+        {
+            private RouteSource src;
+            private RouteTokenizer tokenizer;
+            private double sum;
+
+            @Override
+            public void setup()
+            {
+                src = new StringRouteSource(new CatalogueGenerator(2000, 20,
+                    4, SEED).generate());
+                tokenizer = new RouteTokenizer(new RouteTokenObs()
+                {
+                    public void routeFound(String name, String desc,
+                        int offset)
+                    {
+                        sum += offset;
+                    }
+
+                    public void rowFound(double lat, double lon,
+                        double alt, boolean coordsOk, String desc)
+                    {
+                        sum += lat + lon + alt;
+                    }
+
+                    public void routeEnd(int endOffset, long fingerprint)
+                    {
+                    }
+                });
+            }
+
+            @Override
+            public double run()
+            {
+                sum = 0;
+                tokenizer.tokenize(src);
+                return sum;
+            }
+        };
+    }
+
+    /**
+     * The same catalogue as reader.tokenizer read as TrekFactory read it
+     * before RouteTokenizer: split into lines, routes found by regular
+     * expression and concatenated back into strings, then each route
+     * split again and every coordinate parsed from a substring
+     * @return benchmark
+     */
+    private static Benchmark splitReader()
+    {
+        return new Benchmark("reader.split")
+        {
+            private String data;
+
+            @Override
+            public void setup()
+            {
+                data = new CatalogueGenerator(2000, 20, 4, SEED).generate();
+            }
+
+            @Override
+            public double run()
+            {
+                double sum = 0;
+                String[] lines;
+                String[] start, end;
+
+                for (String route : splitRoutes(data).values())
+                {
+                    lines = route.split("\n");
+                    for (int ii = 2; ii < lines.length - 1; ii++)
+                    {
+                        start = lines[ii].split(",", 4);
+                        end = lines[ii + 1].split(",");
+                        sum += Double.parseDouble(start[0]) +
+                            Double.parseDouble(start[1]) +
+                            Double.parseDouble(start[2]) +
+                            Double.parseDouble(end[0]) +
+                            Double.parseDouble(end[1]) +
+                            Double.parseDouble(end[2]);
+                    }
+                }
+
+                return sum;
+            }
+        };
+    }
+
+    /**
+     * Length, climb and descent of every route of a 100k route catalogue
+     * whose sub-routes are shared by hundreds of routes each, as listed
+     * by the route menu
+     * @return benchmark
+     */
+    private static Benchmark menuAggregates()
+    {
+        return new Benchmark("menu.aggregates")
+        {
+            private Route[] routes;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                routes = menuRoutes();
+            }
+
+            @Override
+            public double run()
+            {
+                double total = 0;
+
+                for (Route rte : routes)
+                {
+                    total += rte.getLength() + rte.getAltIncrease() +
+                        Math.abs(rte.getAltDecrease());
+                }
+
+                return total;
+            }
+        };
+    }
+
+    /**
+     * Every line of the route menu for a 100k route catalogue whose
+     * sub-routes are shared by hundreds of routes each, formatted as
+     * RouteMenuView formats them but not printed
+     * @return benchmark
+     */
+    private static Benchmark menuRender()
+    {
+        return new Benchmark("menu.render")
+        {
+            private Route[] routes;
+            private DecimalFormat df;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                routes = menuRoutes();
+                df = Settings.getInstance().getMFormat();
+            }
+
+            @Override
+            public double run()
+            {
+                double chars = 0;
+
+                for (Route rte : routes)
+                {
+                    chars += (rte.getName() + ": " + rte.getDesc() +
+                        ". Length of " + df.format(rte.getLength()) +
+                        "m (" + df.format(rte.getAltIncrease()) + "m/" +
+                        df.format(Math.abs(rte.getAltDecrease())) +
+                        "m)").length();
+                }
+
+                return chars;
+            }
+        };
+    }
+
+    /**
+     * Route.getLength on a route nested eight sub-routes deep
+     * @return benchmark
+     */
+    private static Benchmark routeLength()
+    {
+        return new Benchmark("route.getLength")
+        {
+            private Route route;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                route = deepRoute();
+            }
+
+            @Override
+            public double run()
+            {
+                return route.getLength();
+            }
+        };
+    }
+
+    /**
+     * Route.getSegments on a route nested eight sub-routes deep
+     * @return benchmark
+     */
+    private static Benchmark routeSegments()
+    {
+        return new Benchmark("route.getSegments")
+        {
+            private Route route;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                route = deepRoute();
+            }
+
+            @Override
+            public double run()
+            {
+                return route.getSegments().size();
+            }
+        };
+    }
+
+    /**
+     * Walking the segments of a route nested eight sub-routes deep with
+     * its segment iterator
+     * @return benchmark
+     */
+    private static Benchmark routeIterator()
+    {
+        return new Benchmark("route.segmentIterator")
+        {
+            private Route route;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                route = deepRoute();
+            }
+
+            @Override
+            public double run()
+            {
+                Iterator<Segment> segs = route.segmentIterator();
+                double total = 0;
+
+                while (segs.hasNext())
+                {
+                    total += segs.next().getLength();
+                }
+
+                return total;
+            }
+        };
+    }
+
+    /**
+     * Route.equals between separately built copies of a route nested
+     * eight sub-routes deep
+     * @return benchmark
+     */
+    private static Benchmark routeEquals()
+    {
+        return new Benchmark("route.equals")
+        {
+            private Route route, copy;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                route = deepRoute();
+                copy = deepRoute();
+            }
+
+            @Override
+            public double run()
+            {
+                return route.equals(copy) ? 1 : 0;
+            }
+        };
+    }
+
+    /**
+     * Creating a CalculatedTrek from a route nested eight sub-routes deep
+     * @return benchmark
+     */
+    private static Benchmark calculatedTrek()
+    {
+        return new Benchmark("calculatedTrek.new")
+        {
+            private Route route;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                route = deepRoute();
+            }
+
+            @Override
+            public double run()
+            {
+                return new CalculatedTrek(route).getDistanceLeft();
+            }
+        };
+    }
+
+    /**
+     * TrackingState.gpsChanged per fix, for fixes walking the whole of a
+     * route nested eight sub-routes deep. Fixes fall on each waypoint and
+     * three points between, the trek is restarted when the walk ends
+     * @return benchmark
+     */
+    private static Benchmark gpsChanged()
+    {
+        return new Benchmark("trackingState.gpsChanged")
+        {
+            private TrackingState state;
+            private double[] fixes;
+            private int next;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                GeoUtils geoUtil = new GeoUtils();
+                LocationFactory lFac = new LocationFactory();
+                Controller con;
+
+                lFac.setUnitVectors(true);
+                con = new Controller(geoUtil, lFac,
+                    new TrekFactory(geoUtil, lFac), new TrekLocator());
+                con.setDetailRoute(deepRoute());
+                state = new TrackingState(con, new View()
+                {
+                    @Override
+                    public void displayView(CalculatedTrek cTrek,
+                        Route detailRoute, Map<String, Route> rteMap,
+                        Waypoint lastKnown)
+                    {
+                    }
+                });
+                state.initialise();
+                fixes = walk(con.getDetailRoute());
+            }
+
+            @Override
+            public double run()
+            {
+                state.gpsChanged(fixes[next], fixes[next + 1],
+                    fixes[next + 2]);
+                next += 3;
+                if (next == fixes.length)
+                {
+                    next = 0;
+                    state.initialise();
+                }
+                return next;
+            }
+        };
+    }
+
+    /**
+     * TrackingState.gpsBatch per batch of BATCH fixes, walking the same
+     * trek as trackingState.gpsChanged
+     * @return benchmark
+     */
+    private static Benchmark gpsBatch()
+    {
+        return new Benchmark("trackingState.gpsBatch")
+        {
+            private TrackingState state;
+            private FixBatch batch;
+            private double[] fixes;
+            private int next;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                GeoUtils geoUtil = new GeoUtils();
+                LocationFactory lFac = new LocationFactory();
+                Controller con;
+
+                lFac.setUnitVectors(true);
+                con = new Controller(geoUtil, lFac,
+                    new TrekFactory(geoUtil, lFac), new TrekLocator());
+                con.setDetailRoute(deepRoute());
+                state = new TrackingState(con, new View()
+                {
+                    @Override
+                    public void displayView(CalculatedTrek cTrek,
+                        Route detailRoute, Map<String, Route> rteMap,
+                        Waypoint lastKnown)
+                    {
+                    }
+                });
+                state.initialise();
+                batch = new FixBatch(BATCH);
+                fixes = walk(con.getDetailRoute());
+            }
+
+            @Override
+            public double run()
+            {
+                batch.clear();
+                while (batch.getCount() < BATCH && next < fixes.length)
+                {
+                    batch.add(fixes[next], fixes[next + 1],
+                        fixes[next + 2], 0);
+                    next += 3;
+                }
+                state.gpsBatch(batch);
+                if (next == fixes.length)
+                {
+                    next = 0;
+                    state.initialise();
+                }
+                return next;
+            }
+        };
+    }
+
+    /**
+     * An outlier filter then a Kalman filter per fix, for a second by
+     * second walk with a few metres of jitter and an occasional jump
+     * @return benchmark
+     */
+    private static Benchmark filterChain()
+    {
+        return new Benchmark("filterChain.filter")
+        {
+            private FilterChain chain;
+            private FixBatch fix;
+            private double[] lats, lons;
+            private long time;
+            private int next;
+
+            @Override
+            public void setup()
+            {
+                Random rand = new Random(SEED);
+
+                chain = new FilterChain(new OutlierFilter(),
+                    new KalmanFilter());
+                fix = new FixBatch(1);
+                lats = new double[1024];
+                lons = new double[1024];
+                for (int ii = 0; ii < lats.length; ii++)
+                {
+                    //about a metre a second north, jitter of 3m
+                    lats[ii] = -32.0 + ii * 0.00001 +
+                        rand.nextGaussian() * 0.00003;
+                    lons[ii] = 115.8 + rand.nextGaussian() * 0.00003;
+                    if (ii % 100 == 50)
+                    {
+                        lats[ii] += 0.01;
+                    }
+                }
+            }
+
+            @Override
+            public double run()
+            {
+                int ii = next;
+
+                next = (next + 1) & (lats.length - 1);
+                //the walk jumps back to its start, wait out the gap
+                time += next == 0 ? 3600000 : 1000;
+                fix.clear();
+                fix.add(lats[ii], lons[ii], 20.0, time);
+                return chain.filter(fix) == 0 ? 0 : fix.getLat(0);
+            }
+        };
+    }
+
+    /**
+     * TrackProjector.project per fix, for fixes walking the first leg of
+     * a trek
+     * @return benchmark
+     */
+    private static Benchmark project()
+    {
+        return new Benchmark("trackProjector.project")
+        {
+            private TrackProjector projector;
+            private CalculatedTrek cTrek;
+            private double[] fixes;
+            private int next;
+
+            @Override
+            public void setup()
+                throws TrekPartException
+            {
+                Route route = deepRoute();
+
+                projector = new TrackProjector();
+                cTrek = new CalculatedTrek(route);
+                cTrek.reachedNext();
+                fixes = walk(route);
+            }
+
+            @Override
+            public double run()
+            {
+                int ii = next;
+
+                //stay about the current and next segments
+                next = (next + 3) % 24;
+                projector.project(cTrek, fixes[ii], fixes[ii + 1]);
+                return projector.getRemaining();
+            }
+        };
+    }
+
+    /**
+     * Splits route data into a string per route keyed by route name, the
+     * way TrekFactory did before RouteTokenizer
+     * @param data as String
+     * @return route strings
+     */
+    private static Map<String, String> splitRoutes(String data)
+    {
+        Map<String, String> routes = new HashMap<String, String>();
+        String[] lines = data.split("\n");
+        String name = null;
+        String route = null;
+        int nameEnd;
+        int ii = 0;
+
+        while (ii < lines.length)
+        {
+            lines[ii] = lines[ii].trim();
+            if (lines[ii].length() == 0)
+            {
+                ii++;
+            }
+            else if (name == null)
+            {
+                nameEnd = lines[ii].indexOf(' ');
+                name = lines[ii].substring(0, nameEnd);
+                route = name + "\n" + lines[ii].substring(nameEnd + 1) +
+                    "\n";
+                ii++;
+            }
+            else if (lines[ii].matches("^[A-Za-z0-9_]+\\s.+"))
+            {
+                routes.put(name, route);
+                name = null;
+            }
+            else
+            {
+                route = route + lines[ii] + "\n";
+                ii++;
+            }
+        }
+        if (name != null)
+        {
+            routes.put(name, route);
+        }
+
+        return routes;
+    }
+
+    /**
+     * Returns a TrekFactory set up as the program sets it up
+     * @return trek factory
+     */
+    private static TrekFactory newTFac()
+    {
+        LocationFactory lFac = new LocationFactory();
+
+        lFac.setUnitVectors(true);
+        return new TrekFactory(new GeoUtils(), lFac);
+    }
+
+    /**
+     * Returns a route eight sub-routes deep with 90 segments
+     * @return nested route
+     * @throws TrekPartException if the route data is rejected
+     */
+    private static Route deepRoute()
+        throws TrekPartException
+    {
+        CatalogueGenerator gen = new CatalogueGenerator(90, 10, 8, SEED);
+
+        return newTFac().mapCreate(gen.generate()).get(
+            CatalogueGenerator.routeName(gen.deepestRoute()));
+    }
+
+    /**
+     * Returns the routes of a 100k route catalogue six levels deep, where
+     * each level's routes only use the first 50 routes of the level below
+     * @return routes of catalogue
+     * @throws TrekPartException if the route data is rejected
+     */
+    private static Route[] menuRoutes()
+        throws TrekPartException
+    {
+        CatalogueGenerator gen = new CatalogueGenerator(100000, 10, 6, SEED);
+        Collection<Route> routes;
+
+        gen.setSubRoutePool(50);
+        routes = newTFac().mapCreate(gen.generate()).values();
+        return routes.toArray(new Route[routes.size()]);
+    }
+
+    /**
+     * Returns lat,lon,alt triples of fixes at each waypoint of the route
+     * and three points evenly between, ending on the final waypoint
+     * @param route as Route
+     * @return fixes along the route
+     */
+    private static double[] walk(Route route)
+    {
+        Iterator<Segment> segs = route.segmentIterator();
+        double[] fixes = new double[(route.getSegmentCount() * 4 + 1) * 3];
+        Waypoint start, end;
+        Segment seg;
+        double frac;
+        int ii = 0;
+
+        while (segs.hasNext())
+        {
+            seg = segs.next();
+            start = seg.getStart();
+            end = seg.getEnd();
+            for (int jj = 0; jj < 4; jj++)
+            {
+                frac = jj / 4.0;
+                fixes[ii++] = start.getLat() +
+                    frac * (end.getLat() - start.getLat());
+                fixes[ii++] = start.getLon() +
+                    frac * (end.getLon() - start.getLon());
+                fixes[ii++] = start.getAlt() +
+                    frac * (end.getAlt() - start.getAlt());
+            }
+        }
+        end = route.getEnd();
+        fixes[ii++] = end.getLat();
+        fixes[ii++] = end.getLon();
+        fixes[ii] = end.getAlt();
+
+        return fixes;
+    }
+}
@@ -0,0 +1,315 @@
+package main.bench;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import main.control.GeoUtils;
+import main.model.*;
+
+/**
+ * Checks TrekFactory builds routes it must not fail on and rejects those
+ * it must. Each check prints whether it passed, the program exits with 1
+ * if any failed. Run with a nesting depth for the deep chain checks, or
+ * nothing for 100k routes deep.
+ *
+ * @author Owen Frere
+ */
+public class BuildChecks
+{
+    //metres per degree of latitude is about 111km, steps are about 11m
+    private static final double STEP = 0.0001;
+    private static final long SEED = 42L;
+
+    private static int failures = 0;
+
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        check("deepChain", deepChain(depth, false));
+        check("deepChain.parallel", deepChain(depth, true));
+        check("cycle", cycle(false));
+        check("cycle.parallel", cycle(true));
+        check("lazyNested", lazyNested(false));
+        check("lazyNested.parallel", lazyNested(true));
+
+        if (failures > 0)
+        {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds a chain of routes each using the one before as its first
+     * part, and walks the segments of the last
+     * @param depth as int, routes nested in the last
+     * @param parallel as boolean
+     * @return why the check failed, null if it passed
+     */
+    private static String deepChain(int depth, boolean parallel)
+    {
+        TrekFactory tFac = newTFac();
+        Map<String, Route> routes;
+        Route top;
+        Iterator<Segment> segs;
+        int walked = 0;
+
+        tFac.setParallel(parallel);
+        try
+        {
+            routes = tFac.mapCreate(chain(depth));
+        }
+        catch (TrekPartException | StackOverflowError e)
+        {
+            return "build failed: " + e;
+        }
+
+        top = routes.get(routeName(depth));
+        if (routes.size() != depth + 1 || top == null)
+        {
+            return "built " + routes.size() + " of " + (depth + 1) +
+                " routes: " + tFac.getLoadReport().getRejections();
+        }
+        if (top.getSegmentCount() != depth + 1)
+        {
+            return "deepest route has " + top.getSegmentCount() +
+                " segments";
+        }
+
+        segs = top.segmentIterator();
+        while (segs.hasNext())
+        {
+            segs.next();
+            walked++;
+        }
+        if (walked != depth + 1)
+        {
+            return "walked " + walked + " segments";
+        }
+
+        return null;
+    }
+
+    /**
+     * Builds two routes using each other, a route using itself and a
+     * route using one of the cycle. Each must be rejected, the cycle
+     * routes with the cycle named, while a route beside them is built
+     * @param parallel as boolean
+     * @return why the check failed, null if it passed
+     */
+    private static String cycle(boolean parallel)
+    {
+        TrekFactory tFac = newTFac();
+        Map<String, Route> routes;
+        Map<String, String> reasons;
+        StringBuilder data = new StringBuilder();
+
+        appendCycleRoute(data, "loopA", "loopB");
+        appendCycleRoute(data, "loopB", "loopA");
+        appendCycleRoute(data, "self", "self");
+        appendCycleRoute(data, "above", "loopA");
+        data.append("plain Not in any cycle\n");
+        appendRow(data, 0, "Leg");
+        appendRow(data, 1, null);
+
+        tFac.setParallel(parallel);
+        try
+        {
+            routes = tFac.mapCreate(data);
+        }
+        catch (TrekPartException | StackOverflowError e)
+        {
+            return "build failed: " + e;
+        }
+        reasons = tFac.getLoadReport().getRejections();
+
+        if (routes.size() != 1 || !routes.containsKey("plain"))
+        {
+            return "built " + routes.keySet();
+        }
+        if (!named(reasons, "loopA", "loopA -> loopB -> loopA") &&
+            !named(reasons, "loopA", "loopB -> loopA -> loopB"))
+        {
+            return "loopA rejected for: " + reasons.get("loopA");
+        }
+        if (!reasons.get("loopA").equals(reasons.get("loopB")))
+        {
+            return "loopB rejected for: " + reasons.get("loopB");
+        }
+        if (!named(reasons, "self", "self -> self"))
+        {
+            return "self rejected for: " + reasons.get("self");
+        }
+        if (!named(reasons, "above", "invalid subroute loopA"))
+        {
+            return "above rejected for: " + reasons.get("above");
+        }
+
+        return null;
+    }
+
+    /**
+     * Loads a catalogue of routes nested four deep both lazily and built
+     * up front, and checks each route's summary and lazily built route
+     * against the route built up front. The cache is smaller than the
+     * catalogue so routes are evicted and built again
+     * @param parallel as boolean
+     * @return why the check failed, null if it passed
+     */
+    private static String lazyNested(boolean parallel)
+    {
+        CatalogueGenerator gen = new CatalogueGenerator(500, 5, 4, SEED);
+        TrekFactory eagerFac = newTFac();
+        TrekFactory lazyFac = newTFac();
+        String data;
+        Map<String, Route> eager;
+        RouteCatalogue lazy;
+        RouteSummary summary;
+        Route rte;
+
+        gen.setSubRoutePool(20);
+        data = gen.generate();
+        lazyFac.setParallel(parallel);
+        lazyFac.setLazy(50);
+        try
+        {
+            eager = eagerFac.mapCreate(data);
+            lazy = (RouteCatalogue)lazyFac.mapCreate(data);
+        }
+        catch (TrekPartException | RuntimeException e)
+        {
+            return "load failed: " + e;
+        }
+
+        if (lazy.size() != eager.size() || eager.size() != 500)
+        {
+            return "lazily loaded " + lazy.size() + " of " + eager.size() +
+                " routes";
+        }
+        for (String name : eager.keySet())
+        {
+            rte = eager.get(name);
+            summary = lazy.getSummary(name);
+            if (summary.getSegmentCount() != rte.getSegmentCount() ||
+                summary.getLength() != rte.getLength())
+            {
+                return "summary of " + name + " differs";
+            }
+            if (!rte.equals(lazy.get(name)))
+            {
+                return "lazily built " + name + " differs";
+            }
+            if (!summary.getSegments().equals(rte.getSegments()))
+            {
+                return "segments of summary " + name + " differ";
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns whether a route was rejected for a reason ending as given
+     * @param reasons as Map<String, String>
+     * @param name as String
+     * @param ending as String
+     * @return is reason as expected
+     */
+    private static boolean named(Map<String, String> reasons, String name,
+        String ending)
+    {
+        String reason = reasons.get(name);
+
+        return reason != null && reason.endsWith(ending);
+    }
+
+    /**
+     * Returns route data for a chain of routes, route n starting with
+     * route n - 1 and adding one segment north of it
+     * @param depth as int
+     * @return route data
+     */
+    private static String chain(int depth)
+    {
+        StringBuilder sb = new StringBuilder((depth + 1) * 96);
+
+        sb.append(routeName(0)).append(" Chain start\n");
+        appendRow(sb, 0, "Leg");
+        appendRow(sb, 1, null);
+        for (int ii = 1; ii <= depth; ii++)
+        {
+            sb.append(routeName(ii)).append(" Chain link\n");
+            appendRow(sb, 0, "*" + routeName(ii - 1));
+            appendRow(sb, ii, "Leg");
+            appendRow(sb, ii + 1, null);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Appends a route starting with a sub-route then adding a segment
+     * @param sb as StringBuilder
+     * @param name as String
+     * @param sub as String
+     */
+    private static void appendCycleRoute(StringBuilder sb, String name,
+        String sub)
+    {
+        sb.append(name).append(" Uses ").append(sub).append('\n');
+        appendRow(sb, 0, "*" + sub);
+        appendRow(sb, 1, "Leg");
+        appendRow(sb, 2, null);
+    }
+
+    /**
+     * Appends a data row a number of steps north of the first
+     * @param sb as StringBuilder
+     * @param steps as int
+     * @param desc as String, null for the last row of a route
+     */
+    private static void appendRow(StringBuilder sb, int steps, String desc)
+    {
+        sb.append(-32.0 + steps * STEP).append(",115.8,20.0");
+        if (desc != null)
+        {
+            sb.append(',').append(desc);
+        }
+        sb.append('\n');
+    }
+
+    private static String routeName(int index)
+    {
+        return "link" + index;
+    }
+
+    /**
+     * Returns a TrekFactory set up as the program sets it up
+     * @return trek factory
+     */
+    private static TrekFactory newTFac()
+    {
+        LocationFactory lFac = new LocationFactory();
+
+        lFac.setUnitVectors(true);
+        return new TrekFactory(new GeoUtils(), lFac);
+    }
+
+    /**
+     * Prints the result of a check, counting it if it failed
+     * @param name as String
+     * @param failure as String, null if the check passed
+     */
+    private static void check(String name, String failure)
+    {
+        if (failure == null)
+        {
+            System.out.println(name + ": ok");
+        }
+        else
+        {
+            System.out.println(name + ": FAILED " + failure);
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package main.bench;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic route data in the format read by TrekFactory, for
+ * benchmarking. Every route generated is valid and links up with the
+ * sub-routes it uses.
+ *
+ * Routes are laid out in nesting levels 0 to depth. A level 0 route is
+ * only segments, a route on any other level begins with a route from the
+ * level below and then continues with its own segments, so a route on
+ * the top level holds depth levels of sub-routes. Sub-routes can be
+ * limited to a pool of the first few routes of each level, so each is
+ * shared by many parents, and level 0 routes can be limited to starting
+ * at a few trailheads. The same seed always gives the same data.
+ *
+ * @author Owen Frere
+ * @throws IllegalArgumentException (unchecked) on invalid sizes
+ */
+public class CatalogueGenerator
+{
+    //metres per degree of latitude is about 111km, steps are about 50m
+    private static final double STEP = 0.0005;
+
+    private int routeCount;
+    private int segsPerRoute;
+    private int depth;
+    private int subRoutePool;
+    private int trailheads;
+    private long seed;
+
+    /**
+     * Constructor
+     * @param routeCount as int, number of routes generated
+     * @param segsPerRoute as int, segments each route adds itself
+     * @param depth as int, deepest nesting of sub-routes
+     * @param seed as long
+     */
+    public CatalogueGenerator(int routeCount, int segsPerRoute, int depth,
+        long seed)
+    {
+        if (routeCount < 1 || segsPerRoute < 1 || depth < 0)
+        {
+            throw new IllegalArgumentException("Invalid catalogue size");
+        }
+
+        this.routeCount = routeCount;
+        this.segsPerRoute = segsPerRoute;
+        this.depth = depth;
+        this.subRoutePool = Integer.MAX_VALUE;
+        this.trailheads = 0;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets how many routes of each level can be used as sub-routes, by
+     * default any route can be
+     * @param subRoutePool as int
+     */
+    public void setSubRoutePool(int subRoutePool)
+    {
+        if (subRoutePool < 1)
+        {
+            throw new IllegalArgumentException("Invalid sub-route pool");
+        }
+
+        this.subRoutePool = subRoutePool;
+    }
+
+    /**
+     * Sets how many points level 0 routes start from, by default 0 where
+     * each starts somewhere of its own
+     * @param trailheads as int
+     */
+    public void setTrailheads(int trailheads)
+    {
+        if (trailheads < 0)
+        {
+            throw new IllegalArgumentException("Invalid trailhead count");
+        }
+
+        this.trailheads = trailheads;
+    }
+
+    /**
+     * Returns the name given to the route at the index
+     * @param index as int
+     * @return name of route
+     */
+    public static String routeName(int index)
+    {
+        return "r" + index;
+    }
+
+    /**
+     * Returns the index of a route on the deepest level generated, the
+     * route with the most nested sub-routes
+     * @return index of deepest route
+     */
+    public int deepestRoute()
+    {
+        int levels = depth + 1;
+
+        if (routeCount < levels)
+        {
+            return routeCount - 1;
+        }
+
+        return (routeCount / levels) * levels - 1;
+    }
+
+    /**
+     * Generates the route data
+     * @return route data as text
+     */
+    public String generate()
+    {
+        StringBuilder sb = new StringBuilder(routeCount *
+            (segsPerRoute + 2) * 48);
+        Random rand = new Random(seed);
+        double[] startLat = new double[routeCount];
+        double[] startLon = new double[routeCount];
+        double[] startAlt = new double[routeCount];
+        double[] endLat = new double[routeCount];
+        double[] endLon = new double[routeCount];
+        double[] endAlt = new double[routeCount];
+        double[] heads = new double[trailheads * 3];
+        int levels = depth + 1;
+        int level, sub, head;
+        double lat, lon, alt, heading;
+
+        for (int ii = 0; ii < heads.length; ii += 3)
+        {
+            heads[ii] = -32.5 + rand.nextDouble();
+            heads[ii + 1] = 115.5 + rand.nextDouble();
+            heads[ii + 2] = 10.0 + rand.nextInt(100);
+        }
+
+        for (int ii = 0; ii < routeCount; ii++)
+        {
+            level = ii % levels;
+            sb.append(routeName(ii)).append(" Generated route ")
+                .append(ii).append('\n');
+
+            if (level == 0 && trailheads > 0)
+            {
+                head = rand.nextInt(trailheads) * 3;
+                lat = heads[head];
+                lon = heads[head + 1];
+                alt = heads[head + 2];
+                startLat[ii] = lat;
+                startLon[ii] = lon;
+                startAlt[ii] = alt;
+            }
+            else if (level == 0)
+            {
+                //spread starts over a square degree around Perth
+                lat = -32.5 + rand.nextDouble();
+                lon = 115.5 + rand.nextDouble();
+                alt = 10.0 + rand.nextInt(100);
+                startLat[ii] = lat;
+                startLon[ii] = lon;
+                startAlt[ii] = alt;
+            }
+            else
+            {
+                //an earlier route one level down from the pool, routes of
+                //a level are spaced a whole number of levels apart
+                sub = level - 1 + levels * rand.nextInt(
+                    Math.min(subRoutePool, (ii - 1) / levels + 1));
+                appendRow(sb, startLat[sub], startLon[sub], startAlt[sub]);
+                sb.append(",*").append(routeName(sub)).append('\n');
+                startLat[ii] = startLat[sub];
+                startLon[ii] = startLon[sub];
+                startAlt[ii] = startAlt[sub];
+                lat = endLat[sub];
+                lon = endLon[sub];
+                alt = endAlt[sub];
+            }
+
+            heading = rand.nextDouble() * 2.0 * Math.PI;
+            for (int jj = 0; jj < segsPerRoute; jj++)
+            {
+                appendRow(sb, lat, lon, alt);
+                sb.append(",Leg ").append(jj).append('\n');
+                heading += (rand.nextDouble() - 0.5) * 0.5;
+                lat += STEP * Math.cos(heading);
+                lon += STEP * Math.sin(heading);
+                alt += rand.nextInt(3) - 1;
+            }
+            appendRow(sb, lat, lon, alt);
+            sb.append('\n');
+
+            endLat[ii] = lat;
+            endLon[ii] = lon;
+            endAlt[ii] = alt;
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Appends the lat,lon,alt of a data row
+     * @param sb as StringBuilder
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     */
+    private void appendRow(StringBuilder sb, double lat, double lon,
+        double alt)
+    {
+        sb.append(lat).append(',').append(lon).append(',').append(alt);
+    }
+}
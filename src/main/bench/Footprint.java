@@ -0,0 +1,136 @@
+package main.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import main.control.GeoUtils;
+import main.model.*;
+
+/**
+ * Reports the heap held by a generated catalogue once loaded, parsed and
+ * from a snapshot, with and without LocationFactory interning. Run with
+ * routes, segments per route, nesting depth and trailheads, or nothing
+ * for a 20k route catalogue.
+ *
+ * @author Owen Frere
+ */
+public class Footprint
+{
+    private static final long SEED = 42L;
+
+    public static void main(String[] args)
+        throws IOException, TrekPartException
+    {
+        int routes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int segs = args.length > 1 ? Integer.parseInt(args[1]) : 25;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int heads = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        CatalogueGenerator gen;
+        String data;
+        Path snapshot;
+        long plain, interned;
+
+        gen = new CatalogueGenerator(routes, segs, depth, SEED);
+        gen.setSubRoutePool(200);
+        gen.setTrailheads(heads);
+        data = gen.generate();
+        snapshot = Files.createTempFile("footprint", ".snap");
+        newTFac(false).writeSnapshot(newTFac(false).mapCreate(data),
+            snapshot);
+
+        System.out.println(routes + " routes of " + segs + " segments, " +
+            depth + " deep, starting from " + heads + " trailheads\n");
+        System.out.println(String.format("%-10s %12s %12s %8s", "Load",
+            "plain MB", "interned MB", "saved"));
+        try
+        {
+            plain = retained(newTFac(false), data, null);
+            interned = retained(newTFac(true), data, null);
+            print("parse", plain, interned);
+            plain = retained(newTFac(false), null, snapshot);
+            interned = retained(newTFac(true), null, snapshot);
+            print("snapshot", plain, interned);
+        }
+        finally
+        {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Loads the catalogue and returns the bytes of heap it holds
+     * @param tFac as TrekFactory
+     * @param data as String, route data to parse, null for snapshot
+     * @param snapshot as Path
+     * @return bytes retained by catalogue
+     * @throws IOException if the snapshot cannot be read
+     * @throws TrekPartException if the route data is rejected
+     */
+    private static long retained(TrekFactory tFac, String data,
+        Path snapshot)
+        throws IOException, TrekPartException
+    {
+        Map<String, Route> routes;
+        long before, after;
+
+        before = usedHeap();
+        if (data != null)
+        {
+            routes = tFac.mapCreate(data);
+        }
+        else
+        {
+            routes = tFac.loadSnapshot(snapshot);
+        }
+        after = usedHeap();
+
+        //keeps the routes reachable until measured
+        if (routes.isEmpty())
+        {
+            throw new TrekPartException("No routes loaded");
+        }
+
+        return after - before;
+    }
+
+    /**
+     * Returns the heap in use after collecting garbage
+     * @return bytes of heap used
+     */
+    private static long usedHeap()
+    {
+        MemoryMXBean mem = ManagementFactory.getMemoryMXBean();
+
+        for (int ii = 0; ii < 3; ii++)
+        {
+            System.gc();
+        }
+
+        return mem.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Returns a TrekFactory set up as the program sets it up
+     * @param interning as boolean
+     * @return trek factory
+     */
+    private static TrekFactory newTFac(boolean interning)
+    {
+        LocationFactory lFac = new LocationFactory();
+
+        lFac.setUnitVectors(true);
+        lFac.setInterning(interning);
+        return new TrekFactory(new GeoUtils(), lFac);
+    }
+
+    private static void print(String load, long plain, long interned)
+    {
+        System.out.println(String.format("%-10s %12.1f %12.1f %7.1f%%",
+            load, plain / 1e6, interned / 1e6,
+            100.0 * (plain - interned) / plain));
+    }
+}
@@ -0,0 +1,199 @@
+package main.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import main.control.GeoUtils;
+import main.control.LatencyHistogram;
+import main.control.TrackingService;
+import main.model.*;
+
+/**
+ * Load test of the TrackingService. Fixes are submitted at a steady rate
+ * spread over a growing number of trekkers, each walking a generated
+ * route waypoint by waypoint, and the latency of each fix from
+ * submission to the end of processing is reported. Run with shards,
+ * fixes per second and seconds per trekker count, or nothing for one
+ * shard a processor at 20k fixes a second for 5 seconds.
+ *
+ * Fixes are sent on a schedule rather than as fast as possible, so
+ * latency includes any time spent queued behind a slow fix.
+ *
+ * @author Owen Frere
+ */
+public class TrackingLoad
+{
+    private static final long SEED = 42L;
+    private static final int ROUTES = 2000;
+    private static final int[] TREKKERS = {1000, 10000, 50000};
+    //fixes short of a waypoint are this far south of it, in degrees
+    private static final double SHORT = 0.005;
+
+    private TrackingService service;
+    private CalculatedTrek[] treks;
+    private String[] ids;
+    private int[] routeOf;
+    private int[] step;
+    private boolean[] reaching;
+
+    public static void main(String[] args)
+        throws InterruptedException, TrekPartException,
+        TrekCalculationException
+    {
+        int shards = args.length > 0 ? Integer.parseInt(args[0]) :
+            Runtime.getRuntime().availableProcessors();
+        int rate = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        LocationFactory lFac = new LocationFactory();
+        GeoUtils geoUtil = new GeoUtils();
+        TrekFactory tFac;
+        Map<String, Route> routes;
+        CalculatedTrek[] treks = new CalculatedTrek[ROUTES];
+        CatalogueGenerator gen;
+        TrackingLoad load;
+        LatencyHistogram latency;
+        long start, sent;
+
+        lFac.setUnitVectors(true);
+        tFac = new TrekFactory(geoUtil, lFac);
+        gen = new CatalogueGenerator(ROUTES, 25, 2, SEED);
+        gen.setSubRoutePool(50);
+        routes = tFac.mapCreate(gen.generate());
+        for (int ii = 0; ii < ROUTES; ii++)
+        {
+            treks[ii] = tFac.create(
+                routes.get(CatalogueGenerator.routeName(ii)));
+        }
+
+        System.out.println(ROUTES + " routes, " + shards + " shards, " +
+            rate + " fixes/s for " + seconds + "s\n");
+        System.out.println(String.format("%10s %10s %10s %10s %10s %10s",
+            "trekkers", "fixes/s", "p50 us", "p99 us", "p99.9 us",
+            "max us"));
+        for (int trekkers : TREKKERS)
+        {
+            load = new TrackingLoad(new TrackingService(routes, geoUtil,
+                lFac, shards), treks, trekkers);
+            load.send(rate, 1);
+            load.service.drain();
+            load.service.resetLatency();
+
+            start = System.nanoTime();
+            sent = load.send(rate, seconds);
+            load.service.drain();
+            latency = load.service.getLatency();
+            load.service.shutdown();
+
+            System.out.println(String.format(
+                "%10d %10.0f %10.1f %10.1f %10.1f %10.1f", trekkers,
+                sent * 1e9 / (System.nanoTime() - start),
+                latency.getPercentile(50) / 1e3,
+                latency.getPercentile(99) / 1e3,
+                latency.getPercentile(99.9) / 1e3,
+                latency.getMax() / 1e3));
+        }
+    }
+
+    /**
+     * Constructor, starting every trekker on a route
+     * @param service as TrackingService
+     * @param treks as CalculatedTrek[], one for each route
+     * @param trekkers as int
+     */
+    private TrackingLoad(TrackingService service, CalculatedTrek[] treks,
+        int trekkers)
+    {
+        this.service = service;
+        this.treks = treks;
+        this.ids = new String[trekkers];
+        this.routeOf = new int[trekkers];
+        this.step = new int[trekkers];
+        this.reaching = new boolean[trekkers];
+
+        for (int ii = 0; ii < trekkers; ii++)
+        {
+            ids[ii] = "trekker-" + ii;
+            routeOf[ii] = ii % treks.length;
+            service.startTrek(ids[ii], treks[routeOf[ii]].getName());
+        }
+    }
+
+    /**
+     * Sends fixes at a rate for a time, a millisecond's worth at a time,
+     * each to the next trekker in turn
+     * @param rate as int, fixes a second
+     * @param seconds as int
+     * @return fixes sent
+     */
+    private long send(int rate, int seconds)
+    {
+        long tick = TimeUnit.MILLISECONDS.toNanos(1);
+        long due = System.nanoTime();
+        long end = due + TimeUnit.SECONDS.toNanos(seconds);
+        long owed = 0, sent = 0;
+        int next = 0;
+
+        while (due < end)
+        {
+            owed += rate;
+            while (owed >= 1000)
+            {
+                sendFix(next);
+                next = (next + 1) % ids.length;
+                owed -= 1000;
+                sent++;
+            }
+            due += tick;
+            LockSupport.parkNanos(due - System.nanoTime());
+        }
+
+        return sent;
+    }
+
+    /**
+     * Sends a trekker's next fix. Every other fix is at their next
+     * waypoint, the rest short of it, and a trekker at the end of their
+     * route starts it again
+     * @param trekker as int
+     */
+    private void sendFix(int trekker)
+    {
+        CalculatedTrek trek = treks[routeOf[trekker]];
+        int seg = step[trekker];
+        int last = trek.getSegmentCount() - 1;
+        double lat, lon, alt;
+
+        if (seg > last + 1)
+        {
+            service.startTrek(ids[trekker], trek.getName());
+            seg = 0;
+            step[trekker] = 0;
+        }
+
+        //the waypoint starting a segment, or the end of the last
+        if (seg <= last)
+        {
+            lat = trek.getStartLat(seg);
+            lon = trek.getStartLon(seg);
+            alt = trek.getStartAlt(seg);
+        }
+        else
+        {
+            lat = trek.getEndLat(last);
+            lon = trek.getEndLon(last);
+            alt = trek.getEndAlt(last);
+        }
+
+        if (reaching[trekker])
+        {
+            step[trekker]++;
+        }
+        else
+        {
+            lat -= SHORT;
+        }
+        reaching[trekker] = !reaching[trekker];
+        service.submitFix(ids[trekker], lat, lon, alt);
+    }
+}
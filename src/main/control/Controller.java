@@ -2,6 +2,9 @@ package main.control;
 
 import java.util.Map;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import main.model.*;
 
 /**
@@ -22,8 +25,11 @@ public class Controller implements LocatorObs
 
     //Data fields
     private Map<String, Route> routes;
-    private Waypoint lastKnown;
+    private SegmentIndex segIndex;
+    private RouteStartIndex startIndex;
+    private volatile Waypoint lastKnown;
     private Route detailRoute;
+    private String snapshotFile;
 
     //Tool fields
     private GeoUtils geoUtil;
@@ -51,6 +57,26 @@ public class Controller implements LocatorObs
         return routes;
     }
 
+    /**
+     * Returns the spatial index over the segments of the known routes,
+     * null if no routes are loaded or they are a lazy catalogue
+     * @return index of known segments
+     */
+    public SegmentIndex getSegmentIndex()
+    {
+        return segIndex;
+    }
+
+    /**
+     * Returns the index of where the known routes start, null if no routes
+     * are loaded
+     * @return index of route starts
+     */
+    public RouteStartIndex getStartIndex()
+    {
+        return startIndex;
+    }
+
     /**
      * Set the StateFactory for the controller
      * @param sFac as StateFactory
@@ -180,15 +206,59 @@ public class Controller implements LocatorObs
         detailRoute = route;
     }
 
+    /**
+     * Sets a file used to cache parsed route data between runs, null for
+     * no cache
+     * @param snapshotFile path of snapshot file
+     */
+    public void setSnapshotFile(String snapshotFile)
+    {
+        this.snapshotFile = snapshotFile;
+    }
+
     /**
      * Requests route data from remote source and converts to required
-     * object form
+     * object form. The first load of a run is taken from the snapshot
+     * file if there is one and it was written from the source as it is
+     * now, later loads refresh it from the source. Lazy
+     * catalogues are read from the source only, a snapshot would need
+     * every route built
      */
     public Map<String, Route> loadRouteData()
     {
+        Path snapshot = null;
+        long stamp;
+
+        if (snapshotFile != null && !tFac.isLazy())
+        {
+            snapshot = Paths.get(snapshotFile);
+        }
+
         try
         {
-            routes = tFac.mapCreate(geoUtil.retrieveRouteData());
+            //taken before parsing so a source edited meanwhile is reread
+            stamp = geoUtil.getRouteSourceStamp();
+            if (routes == null && snapshot != null &&
+                Files.exists(snapshot))
+            {
+                try
+                {
+                    routes = tFac.loadSnapshot(snapshot, stamp);
+                    indexRoutes();
+                    return routes;
+                }
+                catch (IOException e)
+                {
+                    //stale or damaged snapshot, fall back to parsing
+                }
+            }
+
+            routes = tFac.mapCreate(geoUtil.retrieveRouteSource());
+            indexRoutes();
+            if (snapshot != null)
+            {
+                writeSnapshot(snapshot, stamp);
+            }
         }
         catch (IOException e)
         {
@@ -202,4 +272,37 @@ public class Controller implements LocatorObs
         return routes;
     }
 
+    /**
+     * Rebuilds the spatial indexes for newly loaded routes. Indexing the
+     * segments of a lazy catalogue would build every route so only its
+     * route starts are indexed
+     */
+    private void indexRoutes()
+    {
+        startIndex = new RouteStartIndex(routes);
+        segIndex = null;
+        if (!(routes instanceof RouteCatalogue))
+        {
+            segIndex = new SegmentIndex(routes);
+        }
+    }
+
+    /**
+     * Caches the current routes to the snapshot file. Failure only costs
+     * the next run a full parse so is not reported
+     * @param snapshot as Path
+     * @param stamp as long, of the source the routes were read from
+     */
+    private void writeSnapshot(Path snapshot, long stamp)
+    {
+        try
+        {
+            tFac.writeSnapshot(routes, snapshot, stamp);
+        }
+        catch (IOException e)
+        {
+            //next run parses from source instead
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package main.control;
+
+/**
+ * Spherical law of cosines on a sphere of the Earth's mean radius, the
+ * original GeoUtils calculation. Up to 0.6% from the WGS-84 ellipsoid as
+ * the Earth isn't a sphere. The acos of a value near 1 loses precision,
+ * so short distances can be off by several millimetres from rounding
+ * alone. Five trig calls and an acos per distance
+ *
+ * @author Owen Frere
+ */
+public class CosineDistance implements DistanceModel
+{
+    private double radius;
+
+    /**
+     * Constructor
+     * @param radius as double, metres
+     */
+    public CosineDistance(double radius)
+    {
+        this.radius = radius;
+    }
+
+    public double calcMetresDistance(double lat1, double lon1,
+        double lat2, double lon2)
+    {
+        //method provided by Dr Cooper in assignment sheet, rounding can
+        //take points very close together just past 1, which acos rejects
+        double distance = radius * Math.acos(Math.min(1.0,
+            Math.sin((Math.PI * lat1) / 180) *
+            Math.sin((Math.PI * lat2) / 180) +
+            Math.cos((Math.PI * lat1) / 180) *
+            Math.cos((Math.PI * lat2) / 180) *
+            Math.cos((Math.PI * Math.abs(lon1 - lon2))/180)));
+
+        return distance;
+    }
+}
@@ -0,0 +1,22 @@
+package main.control;
+
+/**
+ * Interface for the ways GeoUtils can measure the distance between two
+ * points given in degrees. Models trade accuracy for speed, see each
+ * implementation for its error bounds
+ *
+ * @author Owen Frere
+ */
+public interface DistanceModel
+{
+    /**
+     * Calculates the distance between two 2D points
+     * @param lat1 first point's latitude
+     * @param lon1 first point's longitude
+     * @param lat2 second point's latitude
+     * @param lon2 second point's longitude
+     * @return metres distance between points
+     */
+    public double calcMetresDistance(double lat1, double lon1,
+        double lat2, double lon2);
+}
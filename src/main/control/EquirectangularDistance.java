@@ -0,0 +1,42 @@
+package main.control;
+
+/**
+ * Equirectangular approximation, treats the points as lying on a flat
+ * plane scaled by the cosine of their mean latitude. Meant for short
+ * ranges such as proximity checks: besides the 0.6% of any spherical
+ * model, it stays within 0.01% of haversine for points under 10km apart
+ * below 80 degrees of latitude, but the error grows with the square of
+ * the distance. One trig call and a sqrt per distance
+ *
+ * @author Owen Frere
+ */
+public class EquirectangularDistance implements DistanceModel
+{
+    private double radius;
+
+    /**
+     * Constructor
+     * @param radius as double, metres
+     */
+    public EquirectangularDistance(double radius)
+    {
+        this.radius = radius;
+    }
+
+    public double calcMetresDistance(double lat1, double lon1,
+        double lat2, double lon2)
+    {
+        double dLon = Math.abs(lon2 - lon1);
+        double x, y;
+
+        //take the short way round the antimeridian
+        if (dLon > 180)
+        {
+            dLon = 360 - dLon;
+        }
+        x = Math.toRadians(dLon) * Math.cos(Math.toRadians(lat1 + lat2) / 2);
+        y = Math.toRadians(lat2 - lat1);
+
+        return radius * Math.sqrt(x * x + y * y);
+    }
+}
@@ -1,6 +1,15 @@
 package main.control;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import main.model.GPSLoc;
+import main.model.MappedRouteSource;
+import main.model.RouteSource;
+import main.model.StringRouteSource;
 
 /**
 * Stub class for testing and demonstration. Will represent location
@@ -11,11 +20,28 @@ import java.io.IOException;
 */
 public class GeoUtils
 {
+    //most a proximity model may differ from the sphere over the short
+    //distances it is used for, see isWithin
+    public static final double TOLERANCE = 0.01;
+    //64 bit FNV-1a constants
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
     private String src;
+    private String srcFile;
     private double circumference = 6371000.0;
+    private DistanceModel lengthModel;
+    private DistanceModel proximityModel;
+    //last limit given to isWithin and its squared chords either side of
+    //it, never modified once published so threads can share it
+    private volatile double[] chordLimit;
     
     public GeoUtils()
     {
+        lengthModel = new CosineDistance(circumference);
+        proximityModel = new EquirectangularDistance(circumference);
+        chordLimit = new double[] {0.0, 0.0, 0.0};
+
         src = "theClimb Amazing views!\n-31.94,115.75,47.1,Easy start\n"
             + "-31.94,115.75,55.3,Tricky, watch for drop bears.\n-31.94,"
             + "115.75,71.0,I*feel,like.over-punctuating!@#$%^&*()[]{}<>."
@@ -41,6 +67,63 @@ public class GeoUtils
         return src;
     }
 
+    /**
+     * Returns a RouteSource over all route data. Reads from the route
+     * file if one is set, otherwise from the stub String
+     * @return source of route data
+     * @throws IOException when data retrieval fails
+     */
+    public RouteSource retrieveRouteSource()
+        throws IOException
+    {
+        if (srcFile != null)
+        {
+            return new MappedRouteSource(Paths.get(srcFile));
+        }
+
+        return new StringRouteSource(src);
+    }
+
+    /**
+     * Returns a stamp that changes whenever the route source does, the
+     * size and modification time of the route file if one is set,
+     * otherwise a fingerprint of the stub String
+     * @return stamp of route source
+     * @throws IOException when the route file cannot be read
+     */
+    public long getRouteSourceStamp()
+        throws IOException
+    {
+        BasicFileAttributes attrs;
+        Path file;
+        long stamp = FNV_OFFSET;
+
+        if (srcFile != null)
+        {
+            file = Paths.get(srcFile);
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            stamp = mix(stamp, attrs.size());
+            return mix(stamp, attrs.lastModifiedTime().toMillis());
+        }
+
+        for (int ii = 0; ii < src.length(); ii++)
+        {
+            stamp = (stamp ^ src.charAt(ii)) * FNV_PRIME;
+        }
+
+        return mix(stamp, src.length());
+    }
+
+    /**
+     * Sets a local route file to be memory mapped as the route source,
+     * null returns to the stub String
+     * @param srcFile path of route file
+     */
+    public void setSrcFile(String srcFile)
+    {
+        this.srcFile = srcFile;
+    }
+
     /**
      * Sets stub output to the provided String
      * @param src stub output field
@@ -51,8 +134,59 @@ public class GeoUtils
     }
 
     /**
-     * Calculates the distance between two 2D points on a sphere of
-     * set circumference
+     * Sets the model used for distances that are summed into route
+     * lengths and distances left, by default the spherical law of cosines
+     * @param lengthModel as DistanceModel
+     */
+    public void setLengthModel(DistanceModel lengthModel)
+    {
+        if (lengthModel == null)
+        {
+            throw new IllegalArgumentException("Null distance model");
+        }
+
+        this.lengthModel = lengthModel;
+    }
+
+    /**
+     * Returns the model used for distances summed into route lengths
+     * @return length model
+     */
+    public DistanceModel getLengthModel()
+    {
+        return lengthModel;
+    }
+
+    /**
+     * Returns the model used to check if two points are within the
+     * horizontal limit of each other
+     * @return proximity model
+     */
+    public DistanceModel getProximityModel()
+    {
+        return proximityModel;
+    }
+
+    /**
+     * Sets the model used to check if two points are within the
+     * horizontal limit of each other, by default the equirectangular
+     * approximation. Any model should be within TOLERANCE of the sphere
+     * over such distances, as all of those provided are, since only
+     * pairs that close to the limit on the sphere are measured by it
+     * @param proximityModel as DistanceModel
+     */
+    public void setProximityModel(DistanceModel proximityModel)
+    {
+        if (proximityModel == null)
+        {
+            throw new IllegalArgumentException("Null distance model");
+        }
+
+        this.proximityModel = proximityModel;
+    }
+
+    /**
+     * Calculates the distance between two 2D points with the length model
      * @param lat1 first point's latitude
      * @param lon1 first point's longitude
      * @param lat2 second point's latitude
@@ -62,14 +196,118 @@ public class GeoUtils
     public double calcMetresDistance(double lat1, double lon1, 
         double lat2, double lon2)
     {
-        //method provided by Dr Cooper in assignment sheet
-        double distance = circumference * Math.acos(
-            Math.sin((Math.PI * lat1) / 180) *
-            Math.sin((Math.PI * lat2) / 180) +
-            Math.cos((Math.PI * lat1) / 180) *
-            Math.cos((Math.PI * lat2) / 180) *
-            Math.cos((Math.PI * Math.abs(lon1 - lon2))/180));
+        return lengthModel.calcMetresDistance(lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * Calculates the distance between two nearby 2D points with the
+     * proximity model, for comparing against the horizontal limit
+     * @param lat1 first point's latitude
+     * @param lon1 first point's longitude
+     * @param lat2 second point's latitude
+     * @param lon2 second point's longitude
+     * @return metres distance between points
+     */
+    public double calcProximityDistance(double lat1, double lon1, 
+        double lat2, double lon2)
+    {
+        return proximityModel.calcMetresDistance(lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * Checks if two locations are less than a distance apart by the
+     * proximity model. When both carry unit vectors the straight line
+     * between the vectors is compared against the chords of the limit,
+     * with no trig at all for a repeated limit, and only pairs within
+     * TOLERANCE of the limit are left to the model
+     * @param loc1 as GPSLoc
+     * @param loc2 as GPSLoc
+     * @param limit metres
+     * @return are they within limit
+     */
+    public boolean isWithin(GPSLoc loc1, GPSLoc loc2, double limit)
+    {
+        double[] chords = chordLimit;
+        double dx, dy, dz, chordSq;
+
+        if (loc1.hasUnitVector() && loc2.hasUnitVector() &&
+            limit * (1 + TOLERANCE) < Math.PI * circumference)
+        {
+            //the limit rarely changes so its chords are kept
+            if (chords[0] != limit)
+            {
+                chords = new double[] {limit,
+                    chordSq(limit * (1 - TOLERANCE)),
+                    chordSq(limit * (1 + TOLERANCE))};
+                chordLimit = chords;
+            }
+            dx = loc1.getUnitX() - loc2.getUnitX();
+            dy = loc1.getUnitY() - loc2.getUnitY();
+            dz = loc1.getUnitZ() - loc2.getUnitZ();
+            chordSq = dx * dx + dy * dy + dz * dz;
+
+            if (chordSq < chords[1])
+            {
+                return true;
+            }
+            if (chordSq >= chords[2])
+            {
+                return false;
+            }
+        }
+
+        return isWithin(loc1.getLat(), loc1.getLon(), loc2.getLat(),
+            loc2.getLon(), limit);
+    }
+
+    /**
+     * Checks if two 2D points are less than a distance apart by the
+     * proximity model. Points further apart in latitude alone than the
+     * limit and TOLERANCE are rejected without measuring
+     * @param lat1 first point's latitude
+     * @param lon1 first point's longitude
+     * @param lat2 second point's latitude
+     * @param lon2 second point's longitude
+     * @param limit metres
+     * @return are they within limit
+     */
+    public boolean isWithin(double lat1, double lon1, double lat2,
+        double lon2, double limit)
+    {
+        if (Math.toRadians(Math.abs(lat1 - lat2)) * circumference >
+            limit * (1 + TOLERANCE))
+        {
+            return false;
+        }
+
+        return calcProximityDistance(lat1, lon1, lat2, lon2) < limit;
+    }
+
+    /**
+     * Returns the squared chord of the sphere spanning a distance
+     * @param dist metres along the sphere
+     * @return squared chord of unit sphere
+     */
+    private double chordSq(double dist)
+    {
+        double chord = 2 * Math.sin(dist / (2 * circumference));
+
+        return chord * chord;
+    }
+
+    /**
+     * Adds the bytes of a long to an FNV-1a hash
+     * @param hash as long
+     * @param value as long
+     * @return new hash
+     */
+    private static long mix(long hash, long value)
+    {
+        for (int ii = 0; ii < 64; ii += 8)
+        {
+            hash = (hash ^ ((value >>> ii) & 0xFF)) * FNV_PRIME;
+        }
 
-        return distance;
+        return hash;
     }
 }
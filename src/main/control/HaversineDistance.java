@@ -0,0 +1,34 @@
+package main.control;
+
+/**
+ * Haversine formula on a sphere of the Earth's mean radius. Up to 0.6%
+ * from the WGS-84 ellipsoid as the Earth isn't a sphere, but stable at
+ * any range short of antipodal points, so metre scale distances keep
+ * their precision. Four trig calls, a sqrt and an asin per distance
+ *
+ * @author Owen Frere
+ */
+public class HaversineDistance implements DistanceModel
+{
+    private double radius;
+
+    /**
+     * Constructor
+     * @param radius as double, metres
+     */
+    public HaversineDistance(double radius)
+    {
+        this.radius = radius;
+    }
+
+    public double calcMetresDistance(double lat1, double lon1,
+        double lat2, double lon2)
+    {
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double h = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) *
+            Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+
+        return 2 * radius * Math.asin(Math.sqrt(Math.min(h, 1.0)));
+    }
+}
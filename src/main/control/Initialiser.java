@@ -31,6 +31,11 @@ public class Initialiser
         Map<String, View> views = null;
         Controller con = null;
 
+        //reloads from the route menu only rebuild routes that changed
+        tFac.setIncremental(true);
+        //route waypoints never move, so proximity checks need no trig
+        lFac.setUnitVectors(true);
+
         try
         {
             con = new Controller(geoUtil, lFac, tFac, locatorLink);
@@ -0,0 +1,160 @@
+package main.control;
+
+import java.util.Arrays;
+
+/**
+ * Counts of latencies in nanoseconds, from which percentiles are read.
+ * Latencies are counted in buckets of one sixteenth of a power of two,
+ * so recording is a few shifts and any percentile is within about 6% of
+ * the true value, however many latencies are recorded.
+ *
+ * A histogram is recorded by one thread at a time.
+ *
+ * @author Owen Frere
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private long[] counts;
+    private long count;
+    private long max;
+
+    /**
+     * Constructor
+     */
+    public LatencyHistogram()
+    {
+        counts = new long[BUCKETS];
+    }
+
+    /**
+     * Counts one latency, negative latencies counted as zero
+     * @param nanos as long
+     */
+    public void record(long nanos)
+    {
+        long value = Math.max(0, nanos);
+
+        counts[bucket(value)]++;
+        count++;
+        if (value > max)
+        {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram to this one
+     * @param other as LatencyHistogram
+     */
+    public void add(LatencyHistogram other)
+    {
+        for (int ii = 0; ii < BUCKETS; ii++)
+        {
+            counts[ii] += other.counts[ii];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all counted latencies
+     */
+    public void clear()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+
+    /**
+     * Returns the number of latencies counted
+     * @return count of latencies
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the largest latency counted
+     * @return maximum nanoseconds
+     */
+    public long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Returns the latency that a percentage of latencies are at or below,
+     * as the top of the bucket it falls in. 0 when nothing is counted
+     * @param percent as double, 0 to 100
+     * @return percentile in nanoseconds
+     */
+    public long getPercentile(double percent)
+    {
+        long rank = (long)Math.ceil(count * percent / 100.0);
+        long seen = 0;
+
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        rank = Math.max(1, Math.min(count, rank));
+        for (int ii = 0; ii < BUCKETS; ii++)
+        {
+            seen += counts[ii];
+            if (seen >= rank)
+            {
+                return Math.min(max, bucketTop(ii));
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Returns the bucket a latency is counted in. Values below SUB_COUNT
+     * have a bucket each, above that each power of two is split into
+     * SUB_COUNT buckets
+     * @param value as long
+     * @return index of bucket
+     */
+    private static int bucket(long value)
+    {
+        int exp;
+
+        if (value < SUB_COUNT)
+        {
+            return (int)value;
+        }
+
+        exp = 63 - Long.numberOfLeadingZeros(value);
+        return (exp - SUB_BITS + 1) * SUB_COUNT +
+            (int)((value >>> (exp - SUB_BITS)) - SUB_COUNT);
+    }
+
+    /**
+     * Returns the largest latency counted in a bucket
+     * @param index as int
+     * @return top of bucket in nanoseconds
+     */
+    private static long bucketTop(int index)
+    {
+        int exp;
+        long sub;
+
+        if (index < SUB_COUNT)
+        {
+            return index;
+        }
+
+        exp = index / SUB_COUNT + SUB_BITS - 1;
+        sub = index % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << (exp - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,151 @@
+package main.control;
+
+import main.model.CalculatedTrek;
+import main.model.TrekProgress;
+import main.model.Waypoint;
+
+/**
+ * Finds the furthest waypoint a fix has reached within a window ahead of
+ * a trek's next waypoint, so a trekker who passed waypoints while the
+ * GPS was off is picked up where they are rather than the trek stalling.
+ *
+ * The next waypoint is preferred when the fix reaches it, and nothing is
+ * looked for while the fix is still at the waypoint just reached, so a
+ * trail that doubles back past its own waypoints is not skipped along.
+ * Otherwise the window is searched. It holds at most a number of
+ * waypoints and reaches at most a distance along the trek from the next
+ * waypoint, its end found by a binary search of the trek's distances to
+ * each waypoint. Waypoints in it are checked from the far end back with
+ * GeoUtils.isWithin, the same check as every other arrival, so the
+ * proximity model decides. A match costs no more than the window, however
+ * long the trek, and allocates nothing.
+ *
+ * @author Owen Frere
+ */
+public class LookAheadMatcher
+{
+    public static final int DEFAULT_WAYPOINTS = 10;
+    public static final double DEFAULT_DISTANCE = 1000.0;
+
+    private GeoUtils geoUtil;
+    private int maxWaypoints;
+    private double maxDistance;
+
+    /**
+     * Constructor, looking 10 waypoints and at most 1km ahead
+     * @param geoUtil as GeoUtils
+     */
+    public LookAheadMatcher(GeoUtils geoUtil)
+    {
+        this(geoUtil, DEFAULT_WAYPOINTS, DEFAULT_DISTANCE);
+    }
+
+    /**
+     * Constructor
+     * @param geoUtil as GeoUtils
+     * @param maxWaypoints as int, waypoints in the window including the
+     * next, 1 to check only the next waypoint
+     * @param maxDistance as double, metres along the trek from the next
+     * waypoint to the last in the window
+     * @throws IllegalArgumentException (unchecked) on a missing GeoUtils,
+     * no waypoints or a negative distance
+     */
+    public LookAheadMatcher(GeoUtils geoUtil, int maxWaypoints,
+        double maxDistance)
+    {
+        if (geoUtil == null || maxWaypoints < 1 || !(maxDistance >= 0))
+        {
+            throw new IllegalArgumentException("Invalid look ahead");
+        }
+
+        this.geoUtil = geoUtil;
+        this.maxWaypoints = maxWaypoints;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Returns the waypoint a fix has reached, the next if it reached that
+     * or else the furthest in the window. Waypoints are numbered as
+     * CalculatedTrek.getWaypointLat, so the end of the trek is its segment
+     * count
+     * @param cTrek as CalculatedTrek
+     * @param progress as TrekProgress, of cTrek
+     * @param fix as Waypoint
+     * @param hLimit as double, metres horizontally
+     * @param vLimit as double, metres vertically
+     * @return waypoint reached, -1 if none
+     */
+    public int furthest(CalculatedTrek cTrek, TrekProgress progress,
+        Waypoint fix, double hLimit, double vLimit)
+    {
+        int next = progress.getCurrentIndex() + 1;
+
+        if (reaches(cTrek, next, fix, hLimit, vLimit))
+        {
+            return next;
+        }
+        //still at the waypoint just reached
+        if (next > 0 && reaches(cTrek, next - 1, fix, hLimit, vLimit))
+        {
+            return -1;
+        }
+
+        for (int wp = windowEnd(cTrek, next); wp > next; wp--)
+        {
+            if (reaches(cTrek, wp, fix, hLimit, vLimit))
+            {
+                return wp;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Checks if a fix is close enough to a waypoint to have reached it
+     * @param cTrek as CalculatedTrek
+     * @param wp as int
+     * @param fix as Waypoint
+     * @param hLimit as double
+     * @param vLimit as double
+     * @return is waypoint reached
+     */
+    private boolean reaches(CalculatedTrek cTrek, int wp, Waypoint fix,
+        double hLimit, double vLimit)
+    {
+        return Math.abs(cTrek.getWaypointAlt(wp) - fix.getAlt()) < vLimit &&
+            geoUtil.isWithin(fix.getLat(), fix.getLon(),
+            cTrek.getWaypointLat(wp), cTrek.getWaypointLon(wp), hLimit);
+    }
+
+    /**
+     * Returns the last waypoint of the window starting at a waypoint
+     * @param cTrek as CalculatedTrek
+     * @param next as int
+     * @return last waypoint in window
+     */
+    private int windowEnd(CalculatedTrek cTrek, int next)
+    {
+        int lo = next;
+        int hi = Math.min(cTrek.getSegmentCount(),
+            next + maxWaypoints - 1);
+        double reach = cTrek.getDistanceTo(next) + maxDistance;
+        int mid;
+
+        //last waypoint no further along than reach, the next always is
+        while (lo < hi)
+        {
+            mid = (lo + hi + 1) >>> 1;
+            if (cTrek.getDistanceTo(mid) <= reach)
+            {
+                lo = mid;
+            }
+            else
+            {
+                hi = mid - 1;
+            }
+        }
+
+        return lo;
+    }
+}
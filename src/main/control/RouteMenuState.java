@@ -1,17 +1,20 @@
 package main.control;
 
+import main.model.*;
 import main.view.View;
 
 /**
-* Controller state for route list display
+* Controller state for route list display. Follows the device location so
+* the routes nearest the trekker can be listed
 * 
 * @author Owen Frere
 */
-public class RouteMenuState extends State
+public class RouteMenuState extends State implements LocatorObs
 {
 
     private View view;
     private Controller con;
+    private Waypoint listedAt;
 
     /**
      * Constructor
@@ -22,6 +25,7 @@ public class RouteMenuState extends State
     {
         this.con = con;
         this.view = view;
+        con.getLocatorLink().registerObs(this);
     }
 
     /**
@@ -30,8 +34,36 @@ public class RouteMenuState extends State
     @Override
     public void initialise()
     {
+        listedAt = con.getLastKnown();
         view.displayView(null, con.getDetailRoute(), con.getRoutes(),
-            con.getLastKnown());
+            listedAt);
+    }
+
+    @Override
+    public void deconstruct()
+    {
+        con.getLocatorLink().removeObs(this);
+    }
+
+    /**
+     * Refreshes the view when the device has moved further than the
+     * horizontal limit from where the routes were last listed. Small
+     * movements can't change the nearest routes much so are not shown
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     */
+    public void gpsChanged(double lat, double lon, double alt)
+    {
+        Waypoint lastKnown = con.getLFac().create(lat, lon, alt);
+
+        if (listedAt == null || !con.getGeoUtil().isWithin(
+            listedAt.getGPSLoc(), lastKnown.getGPSLoc(),
+            Settings.getInstance().getHLimit()))
+        {
+            listedAt = lastKnown;
+            view.updateLastKnown(lastKnown);
+        }
     }
 
 }
\ No newline at end of file
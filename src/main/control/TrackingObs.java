@@ -0,0 +1,25 @@
+package main.control;
+
+import main.model.TrekProgress;
+
+/**
+* Interface for observers for the TrackingService. Observers are called
+* on the service's shard threads, and should return quickly
+*
+* @author Owen Frere
+*/
+public interface TrackingObs
+{
+    /**
+     * Observer method for a trekker reaching their next waypoint
+     * @param trekkerId as String
+     * @param progress as TrekProgress
+     */
+    public void waypointReached(String trekkerId, TrekProgress progress);
+
+    /**
+     * Observer method for a trekker reaching the end of their trek
+     * @param trekkerId as String
+     */
+    public void endOfTrek(String trekkerId);
+}
@@ -0,0 +1,498 @@
+package main.control;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import main.model.*;
+
+/**
+ * Headless tracking of many trekkers at once over one route catalogue,
+ * for running the tracking path server side without a Controller.
+ *
+ * A route is calculated once, the first time a trekker starts it, and
+ * every trekker on it walks a CalculatedTrek sharing those paths, so a
+ * trekker costs little more than its progress. Trekkers are spread over
+ * shards by id, each shard a single thread owning its trekkers outright.
+ * A trekker's fixes are processed in the order submitted without any
+ * locking, and the work per fix does not grow with the trekker count.
+ * Fixes can be passed through a FilterChain, each trekker filtered by
+ * their own fresh copy of it. A fix is matched against a window of
+ * waypoints ahead, so a trekker who passed waypoints unseen is picked up
+ * at the furthest they reached.
+ *
+ * @author Owen Frere
+ */
+public class TrackingService
+{
+    private Map<String, Route> routes;
+    private ConcurrentMap<String, CalculatedTrek> calculated;
+    private LookAheadMatcher matcher;
+    private LocationFactory lFac;
+    private double vLimit, hLimit;
+    private Shard[] shards;
+    private Set<TrackingObs> obs;
+    private volatile FilterChain filters;
+
+    /**
+     * Constructor
+     * @param routes as Map<String, Route>, not changed while tracking
+     * @param geoUtil as GeoUtils
+     * @param lFac as LocationFactory
+     * @param shardCount as int, threads fixes are processed on
+     * @throws IllegalArgumentException (unchecked) if anything is missing
+     * or shardCount is not positive
+     */
+    public TrackingService(Map<String, Route> routes, GeoUtils geoUtil,
+        LocationFactory lFac, int shardCount)
+    {
+        Settings settings = Settings.getInstance();
+
+        if (routes == null || geoUtil == null || lFac == null ||
+            shardCount < 1)
+        {
+            throw new IllegalArgumentException("Invalid tracking service");
+        }
+
+        this.routes = routes;
+        this.calculated = new ConcurrentHashMap<String, CalculatedTrek>();
+        this.matcher = new LookAheadMatcher(geoUtil);
+        this.lFac = lFac;
+        //read once, the settings do not change while the program runs
+        this.vLimit = settings.getVLimit();
+        this.hLimit = settings.getHLimit();
+        this.obs = new CopyOnWriteArraySet<TrackingObs>();
+        this.shards = new Shard[shardCount];
+        for (int ii = 0; ii < shardCount; ii++)
+        {
+            shards[ii] = new Shard(ii);
+        }
+    }
+
+    /**
+     * Starts a trekker from the beginning of a route, replacing any trek
+     * they were on. Fixes submitted after this are tracked on the route
+     * @param trekkerId as String
+     * @param routeName as String
+     * @throws IllegalArgumentException (unchecked) if the route is unknown
+     */
+    public void startTrek(final String trekkerId, String routeName)
+    {
+        final CalculatedTrek shared = calculate(routeName);
+        final Shard shard = shardOf(trekkerId);
+        final FilterChain chain = filters;
+
+        shard.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                shard.cursors.put(trekkerId,
+                    new Cursor(new CalculatedTrek(shared),
+                    chain == null ? null : chain.fresh()));
+            }
+        });
+    }
+
+    /**
+     * Stops tracking a trekker, later fixes for them are ignored
+     * @param trekkerId as String
+     */
+    public void endTrek(final String trekkerId)
+    {
+        final Shard shard = shardOf(trekkerId);
+
+        shard.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                shard.cursors.remove(trekkerId);
+            }
+        });
+    }
+
+    /**
+     * Submits a location of a trekker to be tracked. Returns at once, the
+     * fix is processed on the trekker's shard after any submitted before
+     * it. Fixes for trekkers not on a trek, or with invalid coordinates,
+     * are ignored
+     * @param trekkerId as String
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     */
+    public void submitFix(String trekkerId, double lat, double lon,
+        double alt)
+    {
+        submitFix(trekkerId, lat, lon, alt, System.currentTimeMillis());
+    }
+
+    /**
+     * Submits a location of a trekker fixed at a time, as submitFix
+     * @param trekkerId as String
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     * @param millis as long, time of fix
+     */
+    public void submitFix(String trekkerId, double lat, double lon,
+        double alt, long millis)
+    {
+        Shard shard = shardOf(trekkerId);
+
+        shard.execute(new Fix(shard, trekkerId, lat, lon, alt, millis));
+    }
+
+    /**
+     * Sets the filters fixes pass through before they are tracked, for
+     * trekkers started after the call. Each trekker has a fresh copy
+     * @param filters as FilterChain, null to track every fix
+     */
+    public void setFilters(FilterChain filters)
+    {
+        this.filters = filters;
+    }
+
+    /**
+     * Returns the latest progress of a trekker, null if they are not on a
+     * trek. Fixes still waiting on the shard are not included
+     * @param trekkerId as String
+     * @return progress of trekker
+     */
+    public TrekProgress getProgress(String trekkerId)
+    {
+        Cursor cursor = shardOf(trekkerId).cursors.get(trekkerId);
+
+        if (cursor == null)
+        {
+            return null;
+        }
+
+        return cursor.trek.getProgress();
+    }
+
+    /**
+     * Returns the last location tracked for a trekker, null if none
+     * @param trekkerId as String
+     * @return last known location
+     */
+    public Waypoint getLastKnown(String trekkerId)
+    {
+        Cursor cursor = shardOf(trekkerId).cursors.get(trekkerId);
+
+        if (cursor == null)
+        {
+            return null;
+        }
+
+        return cursor.lastKnown;
+    }
+
+    /**
+     * Returns the number of trekkers on a trek
+     * @return count of trekkers
+     */
+    public int getTrekkerCount()
+    {
+        int count = 0;
+
+        for (Shard shard : shards)
+        {
+            count += shard.cursors.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * Waits until everything submitted before the call is processed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void drain()
+        throws InterruptedException
+    {
+        final CountDownLatch done = new CountDownLatch(shards.length);
+
+        for (Shard shard : shards)
+        {
+            shard.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+    }
+
+    /**
+     * Returns the latencies of fixes processed so far, from submission
+     * to the end of processing. Call drain first to include every fix
+     * submitted
+     * @return copy of fix latencies
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public LatencyHistogram getLatency()
+        throws InterruptedException
+    {
+        final LatencyHistogram total = new LatencyHistogram();
+        final CountDownLatch done = new CountDownLatch(shards.length);
+
+        //each shard adds its own counts, so none are read mid record
+        for (final Shard shard : shards)
+        {
+            shard.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    synchronized (total)
+                    {
+                        total.add(shard.latency);
+                    }
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        return total;
+    }
+
+    /**
+     * Forgets the latencies of fixes processed so far
+     */
+    public void resetLatency()
+    {
+        for (final Shard shard : shards)
+        {
+            shard.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    shard.latency.clear();
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the shard threads once everything submitted is processed
+     */
+    public void shutdown()
+    {
+        for (Shard shard : shards)
+        {
+            shard.executor.shutdown();
+        }
+    }
+
+    /**
+     * Registers an observer to be notified of trekkers' progress
+     * @param observer as TrackingObs
+     */
+    public void registerObs(TrackingObs observer)
+    {
+        obs.add(observer);
+    }
+
+    /**
+     * Removes an observer from observer list
+     * @param observer as TrackingObs
+     */
+    public void removeObs(TrackingObs observer)
+    {
+        obs.remove(observer);
+    }
+
+    /**
+     * Returns the trek calculated for a route, calculating it the first
+     * time the route is started
+     * @param routeName as String
+     * @return shared trek of route
+     */
+    private CalculatedTrek calculate(String routeName)
+    {
+        CalculatedTrek shared = calculated.get(routeName);
+        CalculatedTrek raced;
+        Route route;
+
+        if (shared == null)
+        {
+            route = routes.get(routeName);
+            if (route == null)
+            {
+                throw new IllegalArgumentException("No route named " +
+                    routeName);
+            }
+            shared = new CalculatedTrek(route);
+            raced = calculated.putIfAbsent(routeName, shared);
+            if (raced != null)
+            {
+                shared = raced;
+            }
+        }
+
+        return shared;
+    }
+
+    /**
+     * Tracks one fix of a trekker, on the trekker's shard
+     * @param shard as Shard
+     * @param trekkerId as String
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     * @param millis as long
+     */
+    private void track(Shard shard, String trekkerId, double lat,
+        double lon, double alt, long millis)
+    {
+        Cursor cursor = shard.cursors.get(trekkerId);
+        FixBatch fix = shard.fix;
+        TrekProgress progress;
+        int reached;
+
+        if (cursor == null)
+        {
+            return;
+        }
+
+        if (cursor.filters != null)
+        {
+            fix.clear();
+            fix.add(lat, lon, alt, millis);
+            if (cursor.filters.filter(fix) == 0)
+            {
+                return;
+            }
+            lat = fix.getLat(0);
+            lon = fix.getLon(0);
+            alt = fix.getAlt(0);
+        }
+
+        try
+        {
+            cursor.lastKnown = lFac.create(lat, lon, alt);
+        }
+        catch (IllegalArgumentException e)
+        {
+            //a bad fix is dropped rather than losing the shard's thread
+            return;
+        }
+        progress = cursor.trek.getProgress();
+        reached = matcher.furthest(cursor.trek, progress, cursor.lastKnown,
+            hLimit, vLimit);
+        if (reached == cursor.trek.getSegmentCount())
+        {
+            shard.cursors.remove(trekkerId);
+            for (TrackingObs o : obs)
+            {
+                o.endOfTrek(trekkerId);
+            }
+        }
+        else if (reached >= 0 && cursor.trek.reachTo(reached))
+        {
+            progress = cursor.trek.getProgress();
+            for (TrackingObs o : obs)
+            {
+                o.waypointReached(trekkerId, progress);
+            }
+        }
+    }
+
+    private Shard shardOf(String trekkerId)
+    {
+        return shards[(trekkerId.hashCode() & 0x7fffffff) % shards.length];
+    }
+
+    /**
+     * A trekker's position on their trek
+     */
+    private static class Cursor
+    {
+        private CalculatedTrek trek;
+        private FilterChain filters;
+        private volatile Waypoint lastKnown;
+
+        private Cursor(CalculatedTrek trek, FilterChain filters)
+        {
+            this.trek = trek;
+            this.filters = filters;
+        }
+    }
+
+    /**
+     * One thread and the trekkers it owns. Only the thread changes the
+     * cursors and latencies, the map is concurrent so progress can be read
+     * from anywhere
+     */
+    private static class Shard
+    {
+        private ExecutorService executor;
+        private ConcurrentMap<String, Cursor> cursors;
+        private LatencyHistogram latency;
+        //holds the fix being filtered
+        private FixBatch fix;
+
+        private Shard(final int index)
+        {
+            this.cursors = new ConcurrentHashMap<String, Cursor>();
+            this.latency = new LatencyHistogram();
+            this.fix = new FixBatch(1);
+            this.executor = Executors.newSingleThreadExecutor(
+                new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable task)
+                    {
+                        Thread thread = new Thread(task, "tracking-" +
+                            index);
+
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+
+        private void execute(Runnable task)
+        {
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * A fix waiting on its trekker's shard
+     */
+    private class Fix implements Runnable
+    {
+        private Shard shard;
+        private String trekkerId;
+        private double lat, lon, alt;
+        private long millis;
+        private long submitted;
+
+        private Fix(Shard shard, String trekkerId, double lat, double lon,
+            double alt, long millis)
+        {
+            this.shard = shard;
+            this.trekkerId = trekkerId;
+            this.lat = lat;
+            this.lon = lon;
+            this.alt = alt;
+            this.millis = millis;
+            this.submitted = System.nanoTime();
+        }
+
+        @Override
+        public void run()
+        {
+            track(shard, trekkerId, lat, lon, alt, millis);
+            shard.latency.record(System.nanoTime() - submitted);
+        }
+    }
+}
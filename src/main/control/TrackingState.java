@@ -4,18 +4,25 @@ import main.model.*;
 import main.view.View;
 
 /**
-* Controller state for tracking display
+* Controller state for tracking display. Fixes are taken from the locator
+* in batches, the trek is advanced through each and the view redrawn
+* once a batch, so a burst of fixes costs one redraw. A fix at a waypoint
+* a little beyond the next moves the trek straight on to it
 * 
 * @author Owen Frere
 */
-public class TrackingState extends State implements LocatorObs
+public class TrackingState extends State implements BatchLocatorObs
 {    
 
     Controller con;
     View view;
-    CalculatedTrek cTrek;
-    Waypoint lastKnown, approaching;
+    //set by the menu thread, read by the locator thread. Both move the
+    //trek on, the locator feed from fixes and the menu thread from
+    //manual progress, the trek makes each move in one step
+    volatile CalculatedTrek cTrek;
+    volatile Waypoint lastKnown, approaching;
     GeoUtils geoUtil;
+    LookAheadMatcher matcher;
 
     /**
      * Constructor
@@ -27,7 +34,10 @@ public class TrackingState extends State implements LocatorObs
         this.con = con;
         this.view = view;
         this.geoUtil = con.getGeoUtil();
-        con.getLocatorLink().registerObs(this);
+        this.matcher = new LookAheadMatcher(geoUtil);
+        //jitter and outliers near a waypoint must not move the trek on
+        con.getLocatorLink().registerObs(this, new FilterChain(
+            new OutlierFilter(), new KalmanFilter()));
     }
 
     /**
@@ -75,46 +85,97 @@ public class TrackingState extends State implements LocatorObs
      */
     public void gpsChanged(double lat, double lon, double alt)
     {
+        Settings settings = Settings.getInstance();
+        CalculatedTrek trek = cTrek;
+
         lastKnown = con.getLFac().create(lat, lon, alt);
-        
-        if (closeEnough(lastKnown, cTrek.getNextWP()))
+        //fixes can arrive before the trek is calculated
+        if (trek == null)
         {
-            if (cTrek.getSegments().size() == 0)
-            {
-                view.trekFinsihed();
-            }
-            else
-            {
-                cTrek.reachedNext();
-                view.updateCTrek(lastKnown, cTrek);
-            }
+            return;
+        }
+
+        if (advance(trek, lastKnown, settings))
+        {
+            view.trekFinsihed();
         }
         else
         {
-            view.updateCTrek(lastKnown, cTrek);
+            view.updateCTrek(lastKnown, trek);
         }
     }
 
     /**
-     * Checks if two Waypoints are close enough to be considered the same
-     * by the program
-     * @param wp1 as Waypoint
-     * @param wp2 as Waypoint
-     * @return are they close enough
+     * Updates the last known location of the device from every fix
+     * received since the last batch. The trek is advanced through each
+     * waypoint the fixes reached, then the view is updated once from the
+     * latest fix
+     * @param batch as FixBatch
      */
-    public boolean closeEnough(Waypoint wp1, Waypoint wp2)
+    @Override
+    public void gpsBatch(FixBatch batch)
     {
         Settings settings = Settings.getInstance();
+        LocationFactory lFac = con.getLFac();
+        CalculatedTrek trek = cTrek;
+        Waypoint fix = null;
+        boolean finished = false;
+
+        for (int ii = 0; ii < batch.getCount() && !finished; ii++)
+        {
+            try
+            {
+                fix = lFac.create(batch.getLat(ii), batch.getLon(ii),
+                    batch.getAlt(ii));
+            }
+            catch (IllegalArgumentException e)
+            {
+                //a fix with invalid coordinates is skipped
+                continue;
+            }
+            //fixes can arrive before the trek is calculated
+            finished = trek != null && advance(trek, fix, settings);
+        }
 
-        if (Math.abs(wp1.getAlt() - wp2.getAlt()) < settings.getVLimit())
+        if (fix != null)
         {
-            if (settings.getHLimit() > geoUtil.calcMetresDistance(
-                wp1.getLat(), wp2.getLon(),
-                wp2.getLat(), wp2.getLon()))
+            lastKnown = fix;
+            if (finished)
+            {
+                view.trekFinsihed();
+            }
+            else if (trek != null)
             {
-                return true;
+                view.updateCTrek(lastKnown, trek);
             }
         }
+    }
+
+    /**
+     * Moves the trek on to the furthest waypoint a fix reached, looking
+     * a few waypoints past the next. The waypoint is passed to the trek
+     * as is, so a move made by the other thread since progress was read
+     * is not counted twice
+     * @param trek as CalculatedTrek
+     * @param fix as Waypoint
+     * @param settings as Settings
+     * @return was the final waypoint reached
+     */
+    private boolean advance(CalculatedTrek trek, Waypoint fix,
+        Settings settings)
+    {
+        int reached = matcher.furthest(trek, trek.getProgress(), fix,
+            settings.getHLimit(), settings.getVLimit());
+
+        if (reached == trek.getSegmentCount())
+        {
+            return true;
+        }
+        if (reached >= 0)
+        {
+            trek.reachTo(reached);
+        }
+
         return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package main.control;
+
+/**
+ * Vincenty's inverse formula on the WGS-84 ellipsoid, accurate to well
+ * under a millimetre. Iterates until the longitude on the auxiliary
+ * sphere converges, usually in 3 or 4 passes of several trig calls each.
+ * Nearly antipodal points may not converge and fall back to haversine on
+ * a sphere of the Earth's mean radius, within 0.6%
+ *
+ * @author Owen Frere
+ */
+public class VincentyDistance implements DistanceModel
+{
+    //WGS-84 ellipsoid
+    private static final double A = 6378137.0;
+    private static final double F = 1 / 298.257223563;
+    private static final double B = A * (1 - F);
+    private static final double MEAN_RADIUS = 6371008.8;
+    private static final int MAX_ITERATIONS = 200;
+    private static final double TOLERANCE = 1e-12;
+
+    private DistanceModel fallback;
+
+    /**
+     * Constructor
+     */
+    public VincentyDistance()
+    {
+        fallback = new HaversineDistance(MEAN_RADIUS);
+    }
+
+    public double calcMetresDistance(double lat1, double lon1,
+        double lat2, double lon2)
+    {
+        double u1 = Math.atan((1 - F) * Math.tan(Math.toRadians(lat1)));
+        double u2 = Math.atan((1 - F) * Math.tan(Math.toRadians(lat2)));
+        double sinU1 = Math.sin(u1), cosU1 = Math.cos(u1);
+        double sinU2 = Math.sin(u2), cosU2 = Math.cos(u2);
+        double l = Math.toRadians(lon2 - lon1);
+        double lambda = l;
+        double prevLambda;
+        double sinLambda, cosLambda, sinSigma, cosSigma, sigma;
+        double sinAlpha, cos2Alpha, cos2SigmaM, c, u, bigA, bigB, dSigma;
+        int iterations = 0;
+
+        do
+        {
+            sinLambda = Math.sin(lambda);
+            cosLambda = Math.cos(lambda);
+            sinSigma = Math.sqrt(
+                (cosU2 * sinLambda) * (cosU2 * sinLambda) +
+                (cosU1 * sinU2 - sinU1 * cosU2 * cosLambda) *
+                (cosU1 * sinU2 - sinU1 * cosU2 * cosLambda));
+            //coincident points
+            if (sinSigma == 0)
+            {
+                return 0;
+            }
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cos2Alpha = 1 - sinAlpha * sinAlpha;
+            //both points on the equator
+            cos2SigmaM = cos2Alpha == 0 ? 0 :
+                cosSigma - 2 * sinU1 * sinU2 / cos2Alpha;
+            c = F / 16 * cos2Alpha * (4 + F * (4 - 3 * cos2Alpha));
+            prevLambda = lambda;
+            lambda = l + (1 - c) * F * sinAlpha * (sigma + c * sinSigma *
+                (cos2SigmaM + c * cosSigma *
+                (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+            iterations++;
+        }
+        while (Math.abs(lambda - prevLambda) > TOLERANCE &&
+            iterations < MAX_ITERATIONS);
+
+        if (iterations == MAX_ITERATIONS)
+        {
+            return fallback.calcMetresDistance(lat1, lon1, lat2, lon2);
+        }
+
+        u = cos2Alpha * (A * A - B * B) / (B * B);
+        bigA = 1 + u / 16384 * (4096 + u * (-768 + u * (320 - 175 * u)));
+        bigB = u / 1024 * (256 + u * (-128 + u * (74 - 47 * u)));
+        dSigma = bigB * sinSigma * (cos2SigmaM + bigB / 4 *
+            (cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM) -
+            bigB / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) *
+            (-3 + 4 * cos2SigmaM * cos2SigmaM)));
+
+        return B * bigA * (sigma - dSigma);
+    }
+}
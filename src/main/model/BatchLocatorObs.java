@@ -0,0 +1,16 @@
+package main.model;
+
+/**
+* Interface for observers for the TrekLocator that take every fix waiting
+* for them at once, rather than one call a fix
+* 
+* @author Owen Frere
+*/
+public interface BatchLocatorObs extends LocatorObs
+{
+    /**
+     * Observer method for the fixes received since the last batch
+     * @param batch as FixBatch, never empty
+     */
+    public abstract void gpsBatch(FixBatch batch);
+}
@@ -1,10 +1,21 @@
 package main.model;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
 * Represents collection of one or more directed straight line paths 
 * that combine to be a path between 2 3D points on a sphere.
+*
+* The paths are held in parallel arrays rather than Segment objects, so
+* a long trek takes tens of bytes a point and is read in order through
+* memory. Segments and Waypoints are only created when asked for.
+*
+* The paths never change once calculated. Progress along them is held in
+* an immutable TrekProgress replaced as each waypoint is reached, so one
+* thread can track the trek while any number read it without locking.
+* Progress is only replaced holding the trek's lock, so more than one
+* thread may move it on, as the locator feed and manual progress do.
 * 
 * @author Owen Frere
 * @throws IllegalArgumentException(unchecked) if null route provided
@@ -12,10 +23,23 @@ import java.util.*;
 public class CalculatedTrek
 {
     private String name, desc;
-    private List<Segment> segs;
-    private double distanceLeft, climbLeft, descentLeft;
     private Set<CalTrekObs> obs;
-    private Waypoint nextWP;
+    private volatile TrekProgress progress;
+    private TrekProgress start;
+    private List<Segment> segsLeft;
+
+    //points of the trek, joined segments share the point between them
+    private double[] lats, lons, alts;
+    private int points;
+    //a segment runs from its first point to the point after it
+    private int[] firstPoint;
+    //distance along the trek to the start of each segment then to the
+    //end, so the distance between any two waypoints is one subtraction
+    private double[] distanceTo;
+    private double[] altChanges;
+    //descriptions are stored once and referred to by index
+    private String[] descTable;
+    private int[] descIndex;
 
     /**
      * Constructor
@@ -23,6 +47,9 @@ public class CalculatedTrek
      */
     public CalculatedTrek(Route route)
     {
+        double climb = 0, descent = 0;
+        int count;
+
         if (route == null)
         {
             throw new IllegalArgumentException("Invalid route provided");
@@ -30,12 +57,151 @@ public class CalculatedTrek
 
         this.name = route.getName();
         this.desc = route.getDesc();
-        this.segs = route.getSegments();
-        this.distanceLeft = route.getLength();
-        this.climbLeft = route.getAltIncrease();
-        this.descentLeft = route.getAltDecrease();
-        this.obs = new HashSet<CalTrekObs>();
-        this.nextWP = segs.get(0).getStart();
+        this.obs = new CopyOnWriteArraySet<CalTrekObs>();
+        this.segsLeft = new SegmentsLeft();
+
+        store(route);
+        count = altChanges.length;
+        for (int ii = 0; ii < count; ii++)
+        {
+            climb += Math.max(0, altChanges[ii]);
+            descent += Math.max(0, -altChanges[ii]);
+        }
+        this.start = new TrekProgress(0, count,
+            createWaypoint(firstPoint[0]), distanceTo[count], climb,
+            descent);
+        //published last, a reader seeing progress sees the stored paths
+        this.progress = start;
+    }
+
+    /**
+     * Constructor for a new trek from the start of the paths of another.
+     * The paths are shared rather than copied, so any number of trekkers
+     * can walk one calculated route for little more than their progress
+     * @param calculated as CalculatedTrek
+     */
+    public CalculatedTrek(CalculatedTrek calculated)
+    {
+        if (calculated == null)
+        {
+            throw new IllegalArgumentException("Invalid trek provided");
+        }
+
+        this.name = calculated.name;
+        this.desc = calculated.desc;
+        this.obs = new CopyOnWriteArraySet<CalTrekObs>();
+        this.segsLeft = new SegmentsLeft();
+
+        this.lats = calculated.lats;
+        this.lons = calculated.lons;
+        this.alts = calculated.alts;
+        this.points = calculated.points;
+        this.firstPoint = calculated.firstPoint;
+        this.distanceTo = calculated.distanceTo;
+        this.altChanges = calculated.altChanges;
+        this.descTable = calculated.descTable;
+        this.descIndex = calculated.descIndex;
+        this.start = calculated.start;
+        this.progress = start;
+    }
+
+    /**
+     * Copies the segments of the route into the trek's arrays
+     * @param route as Route
+     */
+    private void store(Route route)
+    {
+        Map<String, Integer> descIds = new HashMap<String, Integer>();
+        List<String> descList = new ArrayList<String>();
+        Iterator<Segment> iter = route.segmentIterator();
+        int count = route.getSegmentCount();
+        Integer descId;
+        Segment sg;
+        int seg = 0;
+
+        lats = new double[count + 1];
+        lons = new double[lats.length];
+        alts = new double[lats.length];
+        firstPoint = new int[count];
+        distanceTo = new double[count + 1];
+        altChanges = new double[count];
+        descIndex = new int[count];
+        points = 0;
+
+        while (iter.hasNext())
+        {
+            sg = iter.next();
+            //a segment not starting where the last ended needs its own
+            //start point, as at the join of a sub-route
+            if (points == 0 || !isLastPoint(sg.getStart()))
+            {
+                addPoint(sg.getStart());
+            }
+            firstPoint[seg] = points - 1;
+            addPoint(sg.getEnd());
+
+            distanceTo[seg + 1] = distanceTo[seg] + sg.getLength();
+            altChanges[seg] = sg.getAltChange();
+            descId = descIds.get(sg.getDesc());
+            if (descId == null)
+            {
+                descId = descList.size();
+                descIds.put(sg.getDesc(), descId);
+                descList.add(sg.getDesc());
+            }
+            descIndex[seg] = descId;
+            seg++;
+        }
+
+        if (points < lats.length)
+        {
+            lats = Arrays.copyOf(lats, points);
+            lons = Arrays.copyOf(lons, points);
+            alts = Arrays.copyOf(alts, points);
+        }
+        descTable = descList.toArray(new String[descList.size()]);
+    }
+
+    /**
+     * Checks if a Waypoint is exactly the last point stored
+     * @param wp as Waypoint
+     * @return is it the last point
+     */
+    private boolean isLastPoint(Waypoint wp)
+    {
+        return lats[points - 1] == wp.getLat() &&
+            lons[points - 1] == wp.getLon() &&
+            alts[points - 1] == wp.getAlt();
+    }
+
+    /**
+     * Stores a Waypoint as the next point, growing the arrays if full
+     * @param wp as Waypoint
+     */
+    private void addPoint(Waypoint wp)
+    {
+        if (points == lats.length)
+        {
+            lats = Arrays.copyOf(lats, points + (points >> 1) + 1);
+            lons = Arrays.copyOf(lons, lats.length);
+            alts = Arrays.copyOf(alts, lats.length);
+        }
+
+        lats[points] = wp.getLat();
+        lons[points] = wp.getLon();
+        alts[points] = wp.getAlt();
+        points++;
+    }
+
+    /**
+     * Returns a new Waypoint at a stored point
+     * @param point as int
+     * @return waypoint at point
+     */
+    private Waypoint createWaypoint(int point)
+    {
+        return new Waypoint(new GPSLoc(lats[point], lons[point], true),
+            alts[point]);
     }
 
     /**
@@ -57,12 +223,187 @@ public class CalculatedTrek
     }
 
     /**
-     * Returns a List<Segment> of all the paths that make up the trek
+     * Returns a List<Segment> of the paths of the trek not yet started.
+     * The list is a read only view, its Segments are created as they are
+     * read
      * @return list of the segments
      */
     public List<Segment> getSegments()
     {
-        return segs;
+        return segsLeft;
+    }
+
+    /**
+     * Returns the number of paths that make up the whole trek
+     * @return count of segments
+     */
+    public int getSegmentCount()
+    {
+        return altChanges.length;
+    }
+
+    /**
+     * Returns the number of paths of the trek not yet started
+     * @return count of segments left
+     */
+    public int getSegmentsLeft()
+    {
+        return progress.getSegmentsLeft();
+    }
+
+    /**
+     * Returns the index of the segment the trekker is walking, -1 until
+     * the start of the trek is reached
+     * @return index of current segment
+     */
+    public int getCurrentIndex()
+    {
+        return progress.getCurrentIndex();
+    }
+
+    /**
+     * Returns a snapshot of progress along the trek, all of its values
+     * taken at the same waypoint
+     * @return current progress
+     */
+    public TrekProgress getProgress()
+    {
+        return progress;
+    }
+
+    /**
+     * Returns the segment at an index as a new Segment
+     * @param seg as int
+     * @return segment at index
+     */
+    public Segment getSegment(int seg)
+    {
+        return new Segment(createWaypoint(firstPoint[seg]),
+            createWaypoint(firstPoint[seg] + 1), getSegmentLength(seg),
+            altChanges[seg], descTable[descIndex[seg]]);
+    }
+
+    /**
+     * Returns the latitude of the start of a segment
+     * @param seg as int
+     * @return start latitude
+     */
+    public double getStartLat(int seg)
+    {
+        return lats[firstPoint[seg]];
+    }
+
+    /**
+     * Returns the longitude of the start of a segment
+     * @param seg as int
+     * @return start longitude
+     */
+    public double getStartLon(int seg)
+    {
+        return lons[firstPoint[seg]];
+    }
+
+    /**
+     * Returns the altitude of the start of a segment
+     * @param seg as int
+     * @return start altitude
+     */
+    public double getStartAlt(int seg)
+    {
+        return alts[firstPoint[seg]];
+    }
+
+    /**
+     * Returns the latitude of the end of a segment
+     * @param seg as int
+     * @return end latitude
+     */
+    public double getEndLat(int seg)
+    {
+        return lats[firstPoint[seg] + 1];
+    }
+
+    /**
+     * Returns the longitude of the end of a segment
+     * @param seg as int
+     * @return end longitude
+     */
+    public double getEndLon(int seg)
+    {
+        return lons[firstPoint[seg] + 1];
+    }
+
+    /**
+     * Returns the altitude of the end of a segment
+     * @param seg as int
+     * @return end altitude
+     */
+    public double getEndAlt(int seg)
+    {
+        return alts[firstPoint[seg] + 1];
+    }
+
+    /**
+     * Returns the length in metres of a segment
+     * @param seg as int
+     * @return length of segment
+     */
+    public double getSegmentLength(int seg)
+    {
+        return distanceTo[seg + 1] - distanceTo[seg];
+    }
+
+    /**
+     * Returns the latitude of a waypoint. Waypoint n is the start of
+     * segment n, and the last, numbered the segment count, is the end of
+     * the trek
+     * @param wp as int
+     * @return waypoint latitude
+     */
+    public double getWaypointLat(int wp)
+    {
+        return lats[waypointPoint(wp)];
+    }
+
+    /**
+     * Returns the longitude of a waypoint, numbered as getWaypointLat
+     * @param wp as int
+     * @return waypoint longitude
+     */
+    public double getWaypointLon(int wp)
+    {
+        return lons[waypointPoint(wp)];
+    }
+
+    /**
+     * Returns the altitude of a waypoint, numbered as getWaypointLat
+     * @param wp as int
+     * @return waypoint altitude
+     */
+    public double getWaypointAlt(int wp)
+    {
+        return alts[waypointPoint(wp)];
+    }
+
+    /**
+     * Returns the metres along the trek from its start to a waypoint,
+     * numbered as getWaypointLat
+     * @param wp as int
+     * @return distance to waypoint
+     */
+    public double getDistanceTo(int wp)
+    {
+        return distanceTo[wp];
+    }
+
+    /**
+     * Returns the description of a segment
+     * @param seg as int
+     * @return description of segment
+     */
+    public String getSegmentDesc(int seg)
+    {
+        return descTable[descIndex[seg]];
     }
 
     /**
@@ -71,7 +412,7 @@ public class CalculatedTrek
      */
     public double getDistanceLeft()
     {
-        return distanceLeft;
+        return progress.getDistanceLeft();
     }
 
     /**
@@ -80,7 +421,7 @@ public class CalculatedTrek
      */
     public double getClimbLeft()
     {
-        return climbLeft;
+        return progress.getClimbLeft();
     }
 
     /**
@@ -89,7 +430,7 @@ public class CalculatedTrek
      */
     public double getDescentLeft()
     {
-        return descentLeft;
+        return progress.getDescentLeft();
     }
 
     /**
@@ -99,29 +440,122 @@ public class CalculatedTrek
      */
     public Waypoint getNextWP()
     {
-        return nextWP;
+        return progress.getNextWP();
+    }
+
+    /**
+     * Returns the Segment the trekker is walking, the one ending at the
+     * next waypoint. Null until the start of the trek is reached
+     * @return current segment
+     */
+    public Segment getCurrentSegment()
+    {
+        int current = progress.getCurrentIndex();
+
+        if (current < 0)
+        {
+            return null;
+        }
+
+        return getSegment(current);
     }
 
     /**
      * Updates the classfields to indicate that the next waypoint has been
      * been reached. Updates observers based on it being the final point or
-     * otherwise
+     * otherwise. Progress is replaced in one step, readers see it before
+     * or after the waypoint but never part way
      */
     public void reachedNext()
     {
-        distanceLeft -= segs.get(0).getLength();
-        climbLeft -= segs.get(0).getAltIncrease();
-        descentLeft -= segs.get(0).getAltDecrease();
-        if (segs.size() > 1)
+        reachedAhead(1);
+    }
+
+    /**
+     * Moves progress on past a number of waypoints at once, as when the
+     * trekker is found at a waypoint beyond the next. Reaching one
+     * waypoint is reachedNext. The distance left is taken from the
+     * distances to each waypoint, so the cost does not depend on how
+     * long the trek is
+     * @param waypoints as int, waypoints reached from the next on
+     * @throws IllegalArgumentException (unchecked) if fewer than one or
+     * more than the segments left
+     */
+    public synchronized void reachedAhead(int waypoints)
+    {
+        int to = progress.getCurrentIndex() + 1 + waypoints;
+
+        if (waypoints < 1 || to > altChanges.length)
+        {
+            throw new IllegalArgumentException("Cannot move on " +
+                waypoints + " waypoints");
+        }
+
+        moveTo(to);
+    }
+
+    /**
+     * Moves progress on to a waypoint, numbered as getWaypointLat. A
+     * waypoint at or behind the one last reached leaves progress as it
+     * is, so two threads that both saw the trekker reach a waypoint move
+     * the trek on once between them. Progress only moves forward
+     * @param waypoint as int
+     * @return did progress move
+     * @throws IllegalArgumentException (unchecked) if past the start of
+     * the last segment
+     */
+    public synchronized boolean reachTo(int waypoint)
+    {
+        if (waypoint >= altChanges.length)
+        {
+            throw new IllegalArgumentException("Cannot move on to " +
+                "waypoint " + waypoint);
+        }
+        if (waypoint <= progress.getCurrentIndex())
         {
-            segs.remove(0);
-            nextWP = segs.get(0).getStart();
+            return false;
         }
-        else
+
+        moveTo(waypoint + 1);
+        return true;
+    }
+
+    /**
+     * Replaces progress with that of having started a number of segments,
+     * called holding the lock
+     * @param to as int, segments started
+     */
+    private void moveTo(int to)
+    {
+        TrekProgress prev = progress;
+        int count = altChanges.length;
+        double climb = prev.getClimbLeft();
+        double descent = prev.getDescentLeft();
+
+        for (int seg = prev.getCurrentIndex() + 1; seg < to; seg++)
         {
-            nextWP = segs.get(0).getEnd();
-            segs.remove(0);
+            climb -= Math.max(0, altChanges[seg]);
+            descent -= Math.max(0, -altChanges[seg]);
         }
+
+        progress = new TrekProgress(to, count - to,
+            createWaypoint(waypointPoint(to)),
+            distanceTo[count] - distanceTo[to], climb, descent);
+    }
+
+    /**
+     * Returns the stored point of a waypoint
+     * @param wp as int
+     * @return index of point
+     */
+    private int waypointPoint(int wp)
+    {
+        if (wp < firstPoint.length)
+        {
+            return firstPoint[wp];
+        }
+
+        return firstPoint[firstPoint.length - 1] + 1;
     }
 
     /**
@@ -171,9 +605,13 @@ public class CalculatedTrek
      */
     public String toString()
     {
-        return "Trek: " + name + ", " + desc + ", containing " + segs.size()
-                + " segements.\nTrek has " + distanceLeft 
-                + "m to go (" + climbLeft + "C/" + descentLeft + "D)";
+        TrekProgress now = progress;
+
+        return "Trek: " + name + ", " + desc + ", containing " +
+                now.getSegmentsLeft()
+                + " segements.\nTrek has " + now.getDistanceLeft()
+                + "m to go (" + now.getClimbLeft() + "C/" +
+                now.getDescentLeft() + "D)";
     }
 
     /**
@@ -192,7 +630,7 @@ public class CalculatedTrek
             {
                 if (desc.equals(tempTrek.getDesc()))
                 {
-                    if (segs.equals(tempTrek.getSegments()))
+                    if (segsLeft.equals(tempTrek.getSegments()))
                     {
                         return true;
                     }
@@ -202,4 +640,29 @@ public class CalculatedTrek
 
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Read only view of the segments not yet started
+     */
+    private class SegmentsLeft extends AbstractList<Segment>
+    {
+        @Override
+        public Segment get(int index)
+        {
+            TrekProgress now = progress;
+
+            if (index < 0 || index >= now.getSegmentsLeft())
+            {
+                throw new IndexOutOfBoundsException("No segment " + index);
+            }
+
+            return getSegment(now.getCurrentIndex() + 1 + index);
+        }
+
+        @Override
+        public int size()
+        {
+            return getSegmentsLeft();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package main.model;
+
+/**
+ * Parses plain decimal numbers straight from a range of a RouteSource
+ * without building a String. Numbers of the form [+-]digits[.digits] with
+ * at most 2^53 as their digits and at most 22 decimal places are exact as
+ * a long and a power of ten, so one division gives the same correctly
+ * rounded double as Double.parseDouble. Anything else (exponents, very
+ * long mantissas, NaN, hex) falls back to Double.parseDouble.
+ *
+ * @author Owen Frere
+ * @throws NumberFormatException (unchecked) if the range isn't a number
+ */
+public class DecimalParser
+{
+    private static final long MAX_EXACT = 1L << 53;
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private DecimalParser()
+    {
+    }
+
+    /**
+     * Parses the number in a range of the source, ignoring surrounding
+     * whitespace as Double.parseDouble does
+     * @param src as RouteSource
+     * @param start as int
+     * @param end as int
+     * @return parsed value
+     * @throws NumberFormatException (unchecked) if the range isn't a number
+     */
+    public static double parse(RouteSource src, int start, int end)
+    {
+        int ii;
+        char c;
+        boolean neg = false;
+        boolean point = false;
+        int digits = 0;
+        int scale = 0;
+        long mantissa = 0;
+
+        while (start < end && src.charAt(start) <= ' ')
+        {
+            start++;
+        }
+        while (end > start && src.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+
+        ii = start;
+        if (ii < end && (src.charAt(ii) == '-' || src.charAt(ii) == '+'))
+        {
+            neg = src.charAt(ii) == '-';
+            ii++;
+        }
+
+        for (; ii < end; ii++)
+        {
+            c = src.charAt(ii);
+            if (c >= '0' && c <= '9')
+            {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (point)
+                {
+                    scale++;
+                }
+                if (mantissa > MAX_EXACT || scale >= POW10.length)
+                {
+                    return slowParse(src, start, end);
+                }
+            }
+            else if (c == '.' && !point)
+            {
+                point = true;
+            }
+            else
+            {
+                return slowParse(src, start, end);
+            }
+        }
+
+        if (digits == 0)
+        {
+            return slowParse(src, start, end);
+        }
+
+        return neg ? -(mantissa / POW10[scale]) : mantissa / POW10[scale];
+    }
+
+    private static double slowParse(RouteSource src, int start, int end)
+    {
+        return Double.parseDouble(src.decode(start, end));
+    }
+}
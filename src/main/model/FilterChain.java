@@ -0,0 +1,88 @@
+package main.model;
+
+/**
+ * Filters run in turn over a stream of fixes, between the locator and
+ * the observers tracking a trek. A fix rejected by one filter is removed
+ * before the next sees it. A chain holds the state of one stream, use
+ * fresh for another.
+ *
+ * @author Owen Frere
+ */
+public class FilterChain
+{
+    private FixFilter[] filters;
+
+    /**
+     * Constructor
+     * @param filters as FixFilter..., run in the order given
+     * @throws IllegalArgumentException (unchecked) if a filter is missing
+     */
+    public FilterChain(FixFilter... filters)
+    {
+        if (filters == null)
+        {
+            throw new IllegalArgumentException("Invalid filter chain");
+        }
+        for (FixFilter filter : filters)
+        {
+            if (filter == null)
+            {
+                throw new IllegalArgumentException("Invalid filter chain");
+            }
+        }
+
+        this.filters = filters.clone();
+    }
+
+    /**
+     * Filters every fix of a batch in place, keeping the fixes that
+     * pass every filter in order
+     * @param batch as FixBatch
+     * @return number of fixes kept
+     */
+    public int filter(FixBatch batch)
+    {
+        int kept = 0;
+
+        for (int ii = 0; ii < batch.getCount(); ii++)
+        {
+            if (passes(batch, ii))
+            {
+                batch.move(ii, kept);
+                kept++;
+            }
+        }
+        batch.truncate(kept);
+
+        return kept;
+    }
+
+    /**
+     * Returns a chain of fresh copies of the filters, for another stream
+     * @return fresh chain
+     */
+    public FilterChain fresh()
+    {
+        FixFilter[] copies = new FixFilter[filters.length];
+
+        for (int ii = 0; ii < filters.length; ii++)
+        {
+            copies[ii] = filters[ii].fresh();
+        }
+
+        return new FilterChain(copies);
+    }
+
+    private boolean passes(FixBatch batch, int fix)
+    {
+        for (int ii = 0; ii < filters.length; ii++)
+        {
+            if (!filters[ii].filter(batch, fix))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
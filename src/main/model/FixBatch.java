@@ -0,0 +1,163 @@
+package main.model;
+
+/**
+ * The GPS fixes waiting for an observer, oldest first, as handed to a
+ * BatchLocatorObs. A batch is refilled for each delivery, so it is only
+ * read during the call it is passed to
+ *
+ * @author Owen Frere
+ */
+public final class FixBatch
+{
+    private double[] lats, lons, alts;
+    private long[] times;
+    private int count;
+
+    /**
+     * Constructor
+     * @param capacity as int, most fixes in one batch
+     */
+    public FixBatch(int capacity)
+    {
+        lats = new double[capacity];
+        lons = new double[capacity];
+        alts = new double[capacity];
+        times = new long[capacity];
+    }
+
+    /**
+     * Empties the batch and refills it with the fixes waiting in a buffer,
+     * up to its capacity
+     * @param buffer as FixBuffer
+     * @return number of fixes in batch
+     */
+    int fill(FixBuffer buffer)
+    {
+        count = 0;
+        while (count < lats.length && buffer.poll())
+        {
+            lats[count] = buffer.getLat();
+            lons[count] = buffer.getLon();
+            alts[count] = buffer.getAlt();
+            times[count] = buffer.getTime();
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Empties the batch
+     */
+    public void clear()
+    {
+        count = 0;
+    }
+
+    /**
+     * Adds a fix to the end of the batch
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     * @param millis as long, time of fix
+     * @throws IllegalStateException (unchecked) if the batch is full
+     */
+    public void add(double lat, double lon, double alt, long millis)
+    {
+        if (count == lats.length)
+        {
+            throw new IllegalStateException("Fix batch is full");
+        }
+
+        lats[count] = lat;
+        lons[count] = lon;
+        alts[count] = alt;
+        times[count] = millis;
+        count++;
+    }
+
+    /**
+     * Changes the location of a fix, keeping its time
+     * @param fix as int
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     */
+    public void set(int fix, double lat, double lon, double alt)
+    {
+        lats[fix] = lat;
+        lons[fix] = lon;
+        alts[fix] = alt;
+    }
+
+    /**
+     * Copies a fix over another
+     * @param from as int
+     * @param to as int
+     */
+    void move(int from, int to)
+    {
+        lats[to] = lats[from];
+        lons[to] = lons[from];
+        alts[to] = alts[from];
+        times[to] = times[from];
+    }
+
+    /**
+     * Drops the fixes after the first count
+     * @param count as int
+     */
+    void truncate(int count)
+    {
+        this.count = Math.min(this.count, count);
+    }
+
+    /**
+     * Returns the number of fixes in the batch
+     * @return count of fixes
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the latitude of a fix
+     * @param fix as int
+     * @return latitude
+     */
+    public double getLat(int fix)
+    {
+        return lats[fix];
+    }
+
+    /**
+     * Returns the longitude of a fix
+     * @param fix as int
+     * @return longitude
+     */
+    public double getLon(int fix)
+    {
+        return lons[fix];
+    }
+
+    /**
+     * Returns the altitude of a fix
+     * @param fix as int
+     * @return altitude
+     */
+    public double getAlt(int fix)
+    {
+        return alts[fix];
+    }
+
+    /**
+     * Returns the time of a fix in milliseconds
+     * @param fix as int
+     * @return time of fix
+     */
+    public long getTime(int fix)
+    {
+        return times[fix];
+    }
+}
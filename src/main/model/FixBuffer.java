@@ -0,0 +1,246 @@
+package main.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring buffer of GPS fixes passed from the thread receiving them to the
+ * one thread consuming them. Fixes are held as primitives in an array
+ * allocated up front, so nothing is allocated a fix and neither thread
+ * takes a lock.
+ *
+ * Each slot carries a sequence, odd while the slot is being written and
+ * then even and unique to the fix written. The consumer reads the
+ * sequence before and after a fix and only keeps the fix if they match,
+ * so the receiver can overwrite a slot being read without waiting.
+ *
+ * @author Owen Frere
+ */
+class FixBuffer
+{
+    //sequence, latitude, longitude, altitude and time of each slot
+    private static final int STRIDE = 5;
+    private static final long BLOCK_PARK_NANOS = 10000;
+
+    private AtomicLongArray slots;
+    private int capacity;
+    private long mask;
+    private OverflowPolicy policy;
+
+    //next fix to be written, only changed by the receiver
+    private long written;
+    private AtomicLong published;
+    //next fix to be read, only changed by the consumer
+    private long next;
+    private AtomicLong consumed;
+    private volatile long dropped;
+
+    private volatile Thread consumer;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    //last fix read
+    private double lat, lon, alt;
+    private long time;
+
+    /**
+     * Constructor, the capacity is rounded up to a power of two
+     * @param capacity as int, at least 2
+     * @param policy as OverflowPolicy
+     * @throws IllegalArgumentException (unchecked) on a bad capacity or
+     * missing policy
+     */
+    FixBuffer(int capacity, OverflowPolicy policy)
+    {
+        if (capacity < 2 || capacity > (1 << 24) || policy == null)
+        {
+            throw new IllegalArgumentException("Invalid fix buffer");
+        }
+
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicLongArray(this.capacity * STRIDE);
+        this.policy = policy;
+        this.published = new AtomicLong();
+        this.consumed = new AtomicLong();
+    }
+
+    /**
+     * Adds a fix, called by the receiving thread only. When the consumer
+     * is a full buffer behind the fix overwrites the oldest, or under the
+     * BLOCK policy waits until there is room or the buffer is closed
+     * @param latitude as double
+     * @param longitude as double
+     * @param altitude as double
+     * @param millis as long, time of fix
+     */
+    void offer(double latitude, double longitude, double altitude,
+        long millis)
+    {
+        long pos = written;
+        int base = (int)(pos & mask) * STRIDE;
+
+        if (policy == OverflowPolicy.BLOCK)
+        {
+            while (pos - consumed.get() >= capacity && !closed)
+            {
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+            }
+        }
+
+        //odd while writing, the stores after cannot be seen before it
+        slots.set(base, 2 * pos + 1);
+        slots.lazySet(base + 1, Double.doubleToRawLongBits(latitude));
+        slots.lazySet(base + 2, Double.doubleToRawLongBits(longitude));
+        slots.lazySet(base + 3, Double.doubleToRawLongBits(altitude));
+        slots.lazySet(base + 4, millis);
+        slots.lazySet(base, 2 * pos + 2);
+
+        written = pos + 1;
+        //a full store, so a consumer about to wait either sees the fix or
+        //is seen waiting
+        published.set(written);
+        if (waiting)
+        {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Reads the next fix into the buffer's last fix, called by the
+     * consuming thread only
+     * @return was a fix read
+     */
+    boolean poll()
+    {
+        long head = published.get();
+        int base;
+        long seq;
+
+        while (next < head)
+        {
+            if (head - next >= capacity)
+            {
+                overflowed(head);
+            }
+
+            base = (int)(next & mask) * STRIDE;
+            seq = slots.get(base);
+            if (seq == 2 * next + 2)
+            {
+                lat = Double.longBitsToDouble(slots.get(base + 1));
+                lon = Double.longBitsToDouble(slots.get(base + 2));
+                alt = Double.longBitsToDouble(slots.get(base + 3));
+                time = slots.get(base + 4);
+                if (slots.get(base) == seq)
+                {
+                    next++;
+                    consumed.lazySet(next);
+                    return true;
+                }
+            }
+            //being overwritten, give the receiver time to finish
+            Thread.yield();
+            head = published.get();
+        }
+
+        return false;
+    }
+
+    /**
+     * Waits until a fix is added or the buffer is closed, called by the
+     * consuming thread only. May return early
+     */
+    void await()
+    {
+        consumer = Thread.currentThread();
+        waiting = true;
+        if (published.get() == next && !closed)
+        {
+            LockSupport.park(this);
+        }
+        waiting = false;
+    }
+
+    /**
+     * Closes the buffer, waking the consumer and any blocked receiver
+     */
+    void close()
+    {
+        Thread waiter = consumer;
+
+        closed = true;
+        if (waiter != null)
+        {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * Returns whether the buffer has been closed
+     * @return is closed
+     */
+    boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Returns the number of fixes overwritten or collapsed unread
+     * @return count of fixes dropped
+     */
+    long getDropped()
+    {
+        return dropped;
+    }
+
+    /**
+     * Returns the capacity of the buffer in fixes
+     * @return capacity
+     */
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    double getLat()
+    {
+        return lat;
+    }
+
+    double getLon()
+    {
+        return lon;
+    }
+
+    double getAlt()
+    {
+        return alt;
+    }
+
+    long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Moves the consumer on when a full buffer behind, by the policy
+     * @param head as long, fixes published
+     */
+    private void overflowed(long head)
+    {
+        long from = next;
+
+        if (policy == OverflowPolicy.COALESCE)
+        {
+            next = head - 1;
+        }
+        else if (head - next > capacity)
+        {
+            next = head - capacity;
+        }
+
+        dropped += next - from;
+    }
+}
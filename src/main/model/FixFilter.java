@@ -0,0 +1,27 @@
+package main.model;
+
+/**
+* Interface for a stage of a FilterChain, which sees each fix of one
+* stream of fixes in order. A filter may change a fix in place or reject
+* it, and must not allocate a fix, so that it can run on every fix of
+* every trekker
+* 
+* @author Owen Frere
+*/
+public interface FixFilter
+{
+    /**
+     * Filters a fix of a batch, changing it in place if needed
+     * @param batch as FixBatch
+     * @param fix as int, index of the fix in batch
+     * @return is the fix kept
+     */
+    public abstract boolean filter(FixBatch batch, int fix);
+
+    /**
+     * Returns a new filter with the same settings that has seen no fixes,
+     * for filtering another stream
+     * @return fresh filter
+     */
+    public abstract FixFilter fresh();
+}
@@ -1,19 +1,27 @@
 package main.model;
 
 /**
-* Class representing a 2D location on a sphere
+* Class representing a 2D location on a sphere. Locations are immutable,
+* so they can be shared between threads and routes without copying
 * @author Owen Frere
 * @throws IllegalArgumentException (unchecked) when lat or long outside 
 * of [-180,180] is provided
 */
-public class GPSLoc
+public final class GPSLoc
 {
     public static final double COMPTOL = 0.00000001;
     public static final double MAXGPS = 180.0;
     public static final double MINGPS = -180.0;
 
-    private double latitude;
-    private double longitude;
+    private final double latitude;
+    private final double longitude;
+
+    //optional unit vector from the centre of the sphere, so distance
+    //checks against this location need no trig
+    private final boolean hasUnit;
+    private final double unitX;
+    private final double unitY;
+    private final double unitZ;
 
     /**
      * Constructor
@@ -22,9 +30,39 @@ public class GPSLoc
      */
     public GPSLoc(double lat, double lon)
     {
+        this(lat, lon, false);
+    }
+
+    /**
+     * Constructor, optionally calculating the unit vector of the location
+     * @param lat as double
+     * @param lon as double
+     * @param unitVector as boolean
+     */
+    public GPSLoc(double lat, double lon, boolean unitVector)
+    {
+        double latRad, lonRad, cosLat;
+
         validateCoord(lat, lon);
         this.latitude = lat;
         this.longitude = lon;
+        this.hasUnit = unitVector;
+
+        if (unitVector)
+        {
+            latRad = Math.toRadians(lat);
+            lonRad = Math.toRadians(lon);
+            cosLat = Math.cos(latRad);
+            this.unitX = cosLat * Math.cos(lonRad);
+            this.unitY = cosLat * Math.sin(lonRad);
+            this.unitZ = Math.sin(latRad);
+        }
+        else
+        {
+            this.unitX = 0;
+            this.unitY = 0;
+            this.unitZ = 0;
+        }
     }
 
     /**
@@ -46,15 +84,39 @@ public class GPSLoc
     }
 
     /**
-     * Updates the location indicated
-     * @param lat as double
-     * @param lon as double
+     * Returns whether the location carries its unit vector
+     * @return has unit vector
      */
-    public void updatePosition(double lat, double lon)
+    public boolean hasUnitVector()
     {
-        validateCoord(lat, lon);
-        this.latitude = lat;
-        this.longitude = lon;
+        return hasUnit;
+    }
+
+    /**
+     * Returns x of the unit vector, towards latitude 0 longitude 0
+     * @return x component
+     */
+    public double getUnitX()
+    {
+        return unitX;
+    }
+
+    /**
+     * Returns y of the unit vector, towards latitude 0 longitude 90
+     * @return y component
+     */
+    public double getUnitY()
+    {
+        return unitY;
+    }
+
+    /**
+     * Returns z of the unit vector, towards the north pole
+     * @return z component
+     */
+    public double getUnitZ()
+    {
+        return unitZ;
     }
 
     /**
@@ -96,7 +158,7 @@ public class GPSLoc
      * @param lon as double
      * @throws IllegalArgumentException (un-checked) on invalid coordinates
      */
-    private void validateCoord(double lat, double lon)
+    private static void validateCoord(double lat, double lon)
     {
         if ((lat <= MINGPS || lat >= MAXGPS) ||
             (lon <= MINGPS || lon >= MAXGPS))
@@ -0,0 +1,851 @@
+package main.model;
+
+import java.util.*;
+
+/**
+ * Grid spatial index over a fixed set of straight lines between two
+ * latitude/longitude points, a point being a line of no length, answering
+ * nearest, radius and bounding box queries without reading every line.
+ * Subclasses say what is indexed and what a hit on each line gives.
+ *
+ * Lines are placed in each cell of a fixed latitude/longitude grid that
+ * their bounding box covers. Occupied cells are kept sorted by cell
+ * number in flat arrays, so a row of cells is found with one binary search
+ * and memory is a few ints per line. Distances are measured on a plane
+ * through the query location (equirectangular), which is accurate for
+ * the short ranges proximity queries are meant for.
+ *
+ * An index is never modified after being built so any number of threads
+ * can query it at once.
+ *
+ * @author Owen Frere
+ * @throws IllegalArgumentException (unchecked) on invalid query values
+ */
+abstract class GridIndex<T>
+{
+    public static final double DEFAULT_CELL = 0.01;
+    //smallest cell that keeps cell numbers within an int
+    public static final double MIN_CELL = 0.006;
+
+    private static final double METRES_PER_DEGREE =
+        6371000.0 * Math.PI / 180;
+
+    private double cell;
+    private int nLat;
+    private int nLon;
+
+    //lat,lon of start then end of each line
+    private double[] coords;
+
+    //occupied cell numbers in order, where each cell's lines start in
+    //cellLines, and line numbers grouped by cell
+    private int[] cellKeys;
+    private int[] cellStart;
+    private int[] cellLines;
+
+    /**
+     * Constructor, the subclass must call index once it has its lines
+     * @param cellDegrees as double, size of grid cells
+     */
+    GridIndex(double cellDegrees)
+    {
+        if (!(cellDegrees >= MIN_CELL && cellDegrees <= 180))
+        {
+            throw new IllegalArgumentException("Invalid cell size");
+        }
+
+        this.cell = cellDegrees;
+        this.nLat = (int)Math.ceil(180 / cell);
+        this.nLon = (int)Math.ceil(360 / cell);
+    }
+
+    /**
+     * Returns the result of a query finding a line
+     * @param line as int, number of the line in the indexed order
+     * @param distance as double, metres from query, 0 for box queries
+     * @return query result
+     */
+    protected abstract T hit(int line, double distance);
+
+    /**
+     * Indexes the lines, given as the lat,lon of the start then the end of
+     * each in turn
+     * @param coords as double[]
+     */
+    protected void index(double[] coords)
+    {
+        this.coords = coords;
+        buildCells();
+    }
+
+    /**
+     * Returns the number of lines indexed
+     * @return lines indexed
+     */
+    public int size()
+    {
+        return coords.length / 4;
+    }
+
+    /**
+     * Returns up to k lines nearest to a location, nearest first.
+     * Occupied cells are visited nearest first, each row of the grid
+     * walked outwards from the query's longitude in both directions and
+     * rows opened outwards from the query's latitude, until no unvisited
+     * cell can hold anything nearer than the k found so far
+     * @param wp as Waypoint
+     * @param k as int
+     * @return nearest lines
+     */
+    public List<T> nearest(Waypoint wp, int k)
+    {
+        NearestSearch search;
+        PriorityQueue<RowCursor> queue = new PriorityQueue<RowCursor>();
+        RowCursor cursor;
+        int qi;
+
+        if (k < 1)
+        {
+            throw new IllegalArgumentException("Invalid result count");
+        }
+        if (size() == 0)
+        {
+            return new ArrayList<T>();
+        }
+
+        search = new NearestSearch(wp.getLat(), wp.getLon(), k);
+        qi = latIndex(wp.getLat());
+
+        openRow(qi, search, queue);
+        if (qi + 1 < nLat)
+        {
+            queue.add(new RowCursor(qi + 1, 1, null,
+                search.rowGap(qi + 1)));
+        }
+        if (qi > 0)
+        {
+            queue.add(new RowCursor(qi - 1, -1, null,
+                search.rowGap(qi - 1)));
+        }
+
+        while (!queue.isEmpty() &&
+            !(search.isFull() && queue.peek().bound >= search.worst()))
+        {
+            cursor = queue.poll();
+            //a cursor with no row left is a row still to be opened
+            if (cursor.left == null)
+            {
+                openRow(cursor.row, search, queue);
+                cursor.row += cursor.step;
+                if (cursor.row >= 0 && cursor.row < nLat)
+                {
+                    cursor.bound = search.rowGap(cursor.row);
+                    queue.add(cursor);
+                }
+            }
+            else if (cursor.left[0] > 0)
+            {
+                cursor.left[0]--;
+                scanCell(cursor.idx, search);
+                cursor.idx = nextInRow(cursor.idx, cursor.step, cursor.row);
+                cursor.bound = search.cellGap(cursor.row, cursor.idx);
+                queue.add(cursor);
+            }
+        }
+
+        return search.hits();
+    }
+
+    /**
+     * Adds cursors walking east and west from the query's longitude over
+     * the occupied cells of a row, which share one count of cells left
+     * so that between them each cell is visited once
+     * @param row as int
+     * @param search as NearestSearch
+     * @param queue as PriorityQueue<RowCursor>
+     */
+    private void openRow(int row, NearestSearch search,
+        PriorityQueue<RowCursor> queue)
+    {
+        int first = lowerBound(row * nLon);
+        int end = lowerBound((row + 1) * nLon);
+        int[] left = new int[] {end - first};
+        int east;
+
+        if (end > first)
+        {
+            east = lowerBound(row * nLon + lonIndex(search.qLon));
+            if (east == end)
+            {
+                east = first;
+            }
+            queue.add(new RowCursor(row, 1, left, east,
+                search.cellGap(row, east)));
+            east = nextInRow(east, -1, row);
+            queue.add(new RowCursor(row, -1, left, east,
+                search.cellGap(row, east)));
+        }
+    }
+
+    /**
+     * Returns the next occupied cell of a row in a direction, wrapping
+     * round at either end of the row
+     * @param idx as int
+     * @param step as int
+     * @param row as int
+     * @return index of next cell
+     */
+    private int nextInRow(int idx, int step, int row)
+    {
+        int next = idx + step;
+
+        if (next < 0 || next >= cellKeys.length ||
+            cellKeys[next] / nLon != row)
+        {
+            next = step > 0 ? lowerBound(row * nLon) :
+                lowerBound((row + 1) * nLon) - 1;
+        }
+
+        return next;
+    }
+
+    /**
+     * Returns the index of the first occupied cell numbered key or more
+     * @param key as int
+     * @return index into cellKeys
+     */
+    private int lowerBound(int key)
+    {
+        int idx = Arrays.binarySearch(cellKeys, key);
+
+        return idx < 0 ? -idx - 1 : idx;
+    }
+
+    /**
+     * Returns every line with a point within a distance of a location,
+     * nearest first
+     * @param wp as Waypoint
+     * @param radius as double, metres
+     * @return lines in range
+     */
+    public List<T> withinRadius(Waypoint wp, double radius)
+    {
+        RadiusSearch search;
+        double latSpan, lonSpan;
+        int latLo, latHi, lonLo, lonHi, lonCells;
+
+        if (!(radius >= 0))
+        {
+            throw new IllegalArgumentException("Invalid radius");
+        }
+
+        search = new RadiusSearch(wp.getLat(), wp.getLon(), radius);
+        latSpan = radius / METRES_PER_DEGREE;
+        lonSpan = radius / search.minMetresPerDegree();
+
+        latLo = latIndex(Math.max(-90, wp.getLat() - latSpan));
+        latHi = latIndex(Math.min(90, wp.getLat() + latSpan));
+        lonCells = (int)Math.min(nLon, Math.ceil(lonSpan / cell));
+        lonLo = lonIndex(wp.getLon()) - lonCells;
+        lonHi = lonIndex(wp.getLon()) + lonCells;
+
+        for (int lat = latLo; lat <= latHi; lat++)
+        {
+            scanLonRange(lat, lonLo, lonHi, search);
+        }
+
+        return search.hits();
+    }
+
+    /**
+     * Returns every line crossing a box of latitude and longitude.
+     * Boxes crossing the antimeridian have minLon greater than maxLon
+     * @param minLat as double
+     * @param minLon as double
+     * @param maxLat as double
+     * @param maxLon as double
+     * @return lines in box
+     */
+    public List<T> withinBox(double minLat, double minLon,
+        double maxLat, double maxLon)
+    {
+        BoxSearch search;
+        int lonLo, lonHi;
+
+        if (!(minLat <= maxLat))
+        {
+            throw new IllegalArgumentException("Invalid bounding box");
+        }
+
+        if (minLon > maxLon)
+        {
+            maxLon += 360;
+        }
+        search = new BoxSearch(minLat, minLon, maxLat, maxLon);
+
+        lonLo = lonIndex(minLon);
+        lonHi = lonLo + (int)Math.min(nLon, (maxLon - minLon) / cell + 1);
+        for (int lat = latIndex(minLat); lat <= latIndex(maxLat); lat++)
+        {
+            scanLonRange(lat, lonLo, lonHi, search);
+        }
+
+        return search.hits();
+    }
+
+    /**
+     * Places every line in the cells its bounding box covers. Entries
+     * are packed as cell number and line number in one long so a single
+     * primitive sort groups them by cell
+     */
+    private void buildCells()
+    {
+        long[] entries;
+        int count = 0;
+        int cells = 0;
+        int key;
+
+        for (int pass = 0; pass < 2; pass++)
+        {
+            entries = pass == 0 ? null : new long[count];
+            count = 0;
+            for (int ii = 0; ii < size(); ii++)
+            {
+                count = addEntries(ii, entries, count);
+            }
+
+            if (pass == 1)
+            {
+                Arrays.sort(entries);
+
+                for (int ii = 0; ii < count; ii++)
+                {
+                    if (ii == 0 || (entries[ii] >>> 32) !=
+                        (entries[ii - 1] >>> 32))
+                    {
+                        cells++;
+                    }
+                }
+
+                cellKeys = new int[cells];
+                cellStart = new int[cells + 1];
+                cellLines = new int[count];
+                cells = 0;
+                for (int ii = 0; ii < count; ii++)
+                {
+                    key = (int)(entries[ii] >>> 32);
+                    if (ii == 0 || key != cellKeys[cells - 1])
+                    {
+                        cellKeys[cells] = key;
+                        cellStart[cells] = ii;
+                        cells++;
+                    }
+                    cellLines[ii] = (int)entries[ii];
+                }
+                cellStart[cells] = count;
+            }
+        }
+    }
+
+    /**
+     * Adds a cell entry for each cell a line's bounding box covers, or
+     * just counts them if entries is null
+     * @param line as int
+     * @param entries as long[]
+     * @param count as int, entries so far
+     * @return entries after adding
+     */
+    private int addEntries(int line, long[] entries, int count)
+    {
+        double lat1 = coords[line * 4];
+        double lon1 = coords[line * 4 + 1];
+        double lat2 = coords[line * 4 + 2];
+        double lon2 = coords[line * 4 + 3];
+        int lonLo, lonHi, lon;
+
+        //go the short way round the antimeridian
+        if (Math.abs(lon2 - lon1) > 180)
+        {
+            lon2 += lon2 < lon1 ? 360 : -360;
+        }
+        lonLo = lonIndex(Math.min(lon1, lon2));
+        lonHi = lonLo + (int)Math.floor(Math.abs(lon2 - lon1) / cell) + 1;
+        lonHi = Math.min(lonHi, lonLo + nLon - 1);
+
+        for (int lat = latIndex(Math.min(lat1, lat2));
+            lat <= latIndex(Math.max(lat1, lat2)); lat++)
+        {
+            for (int ii = lonLo; ii <= lonHi; ii++)
+            {
+                lon = Math.floorMod(ii, nLon);
+                if (entries != null)
+                {
+                    entries[count] = ((long)(lat * nLon + lon) << 32) | line;
+                }
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Offers the lines of every occupied cell in a row between two
+     * longitude indexes, which may be outside the grid and are wrapped
+     * @param lat as int
+     * @param lonLo as int
+     * @param lonHi as int
+     * @param search as Search
+     */
+    private void scanLonRange(int lat, int lonLo, int lonHi, Search search)
+    {
+        int lo, hi;
+
+        if (lat < 0 || lat >= nLat)
+        {
+            return;
+        }
+
+        if (lonHi - lonLo + 1 >= nLon)
+        {
+            scanCells(lat, 0, nLon - 1, search);
+        }
+        else
+        {
+            lo = Math.floorMod(lonLo, nLon);
+            hi = Math.floorMod(lonHi, nLon);
+            if (lo <= hi)
+            {
+                scanCells(lat, lo, hi, search);
+            }
+            else
+            {
+                scanCells(lat, lo, nLon - 1, search);
+                scanCells(lat, 0, hi, search);
+            }
+        }
+    }
+
+    /**
+     * Offers the lines of the occupied cells in a row from lonLo to
+     * lonHi, both inside the grid
+     * @param lat as int
+     * @param lonLo as int
+     * @param lonHi as int
+     * @param search as Search
+     */
+    private void scanCells(int lat, int lonLo, int lonHi, Search search)
+    {
+        int last = lat * nLon + lonHi;
+        int idx = lowerBound(lat * nLon + lonLo);
+
+        while (idx < cellKeys.length && cellKeys[idx] <= last)
+        {
+            scanCell(idx, search);
+            idx++;
+        }
+    }
+
+    private void scanCell(int idx, Search search)
+    {
+        for (int ii = cellStart[idx]; ii < cellStart[idx + 1]; ii++)
+        {
+            search.offer(cellLines[ii]);
+        }
+    }
+
+    private int latIndex(double lat)
+    {
+        return Math.min(nLat - 1, Math.max(0,
+            (int)Math.floor((lat + 90) / cell)));
+    }
+
+    private int lonIndex(double lon)
+    {
+        return Math.floorMod((int)Math.floor((lon + 180) / cell), nLon);
+    }
+
+    /**
+     * A query in progress, offered every line in the cells it reads.
+     * A line in several cells may be offered more than once
+     */
+    private abstract class Search
+    {
+        protected double qLat;
+        protected double qLon;
+        //metres per degree of longitude and latitude at the query
+        protected double kx;
+        protected double ky;
+
+        Search(double qLat, double qLon)
+        {
+            this.qLat = qLat;
+            this.qLon = qLon;
+            this.kx = METRES_PER_DEGREE * Math.cos(Math.toRadians(qLat));
+            this.ky = METRES_PER_DEGREE;
+        }
+
+        abstract void offer(int line);
+
+        /**
+         * Returns the fewest metres a degree of latitude or longitude can
+         * be from the query location
+         * @return metres per degree
+         */
+        double minMetresPerDegree()
+        {
+            return Math.max(Math.min(kx, ky), 1e-9);
+        }
+
+        /**
+         * Returns the metres from the query location to the nearest point
+         * of a line
+         * @param line as int
+         * @return distance to line
+         */
+        double distance(int line)
+        {
+            double ax = lonDiff(coords[line * 4 + 1]) * kx;
+            double ay = (coords[line * 4] - qLat) * ky;
+            double bx = lonDiff(coords[line * 4 + 3]) * kx;
+            double by = (coords[line * 4 + 2] - qLat) * ky;
+            double dx = bx - ax;
+            double dy = by - ay;
+            double lenSq = dx * dx + dy * dy;
+            double t = 0;
+
+            //closest point of the line to the origin, the query
+            if (lenSq > 0)
+            {
+                t = Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lenSq));
+            }
+            ax += t * dx;
+            ay += t * dy;
+
+            return Math.sqrt(ax * ax + ay * ay);
+        }
+
+        protected double lonDiff(double lon)
+        {
+            double diff = lon - qLon;
+
+            if (diff > 180)
+            {
+                diff -= 360;
+            }
+            else if (diff < -180)
+            {
+                diff += 360;
+            }
+
+            return diff;
+        }
+    }
+
+    /**
+     * Position of a nearest search in one row of the grid, or a row still
+     * to be opened if it has no count of cells left. Ordered by the fewest
+     * metres the cell or row can be from the query location
+     */
+    private static class RowCursor implements Comparable<RowCursor>
+    {
+        private int row;
+        private int step;
+        private int[] left;
+        private int idx;
+        private double bound;
+
+        /**
+         * Constructor for a row to be opened
+         * @param row as int
+         * @param step as int, direction of the next row to open
+         * @param left as int[], null
+         * @param bound as double
+         */
+        RowCursor(int row, int step, int[] left, double bound)
+        {
+            this(row, step, left, -1, bound);
+        }
+
+        /**
+         * Constructor for a walk over the cells of a row
+         * @param row as int
+         * @param step as int, direction of the walk
+         * @param left as int[], cells of the row not yet visited
+         * @param idx as int, next cell to visit
+         * @param bound as double
+         */
+        RowCursor(int row, int step, int[] left, int idx, double bound)
+        {
+            this.row = row;
+            this.step = step;
+            this.left = left;
+            this.idx = idx;
+            this.bound = bound;
+        }
+
+        public int compareTo(RowCursor other)
+        {
+            return Double.compare(bound, other.bound);
+        }
+    }
+
+    /**
+     * k nearest search, keeps the best k found in order of distance
+     */
+    private class NearestSearch extends Search
+    {
+        private double[] bestDist;
+        private int[] bestLine;
+        private int found;
+
+        NearestSearch(double qLat, double qLon, int k)
+        {
+            super(qLat, qLon);
+            bestDist = new double[Math.min(k, size())];
+            bestLine = new int[bestDist.length];
+            found = 0;
+        }
+
+        boolean isFull()
+        {
+            return found == bestDist.length;
+        }
+
+        /**
+         * Returns the fewest metres any point of a row can be from the
+         * query location
+         * @param row as int
+         * @return distance to row
+         */
+        double rowGap(int row)
+        {
+            double gap = 0;
+
+            if (row > latIndex(qLat))
+            {
+                gap = row * cell - 90 - qLat;
+            }
+            else if (row < latIndex(qLat))
+            {
+                gap = qLat - ((row + 1) * cell - 90);
+            }
+
+            return Math.max(0, gap) * ky;
+        }
+
+        /**
+         * Returns the fewest metres any point of an occupied cell can be
+         * from the query location
+         * @param row as int
+         * @param idx as int, index into cellKeys
+         * @return distance to cell
+         */
+        double cellGap(int row, int idx)
+        {
+            int lon = cellKeys[idx] % nLon;
+            double lonGap = 0;
+            double latGap = rowGap(row);
+
+            if (lon != lonIndex(qLon))
+            {
+                lonGap = Math.min(
+                    Math.abs(lonDiff(lon * cell - 180)),
+                    Math.abs(lonDiff((lon + 1) * cell - 180))) * kx;
+            }
+
+            return Math.sqrt(latGap * latGap + lonGap * lonGap);
+        }
+
+        double worst()
+        {
+            return bestDist[found - 1];
+        }
+
+        void offer(int line)
+        {
+            double dist = distance(line);
+            int pos;
+
+            if (isFull() && dist >= worst())
+            {
+                return;
+            }
+            for (int ii = 0; ii < found; ii++)
+            {
+                if (bestLine[ii] == line)
+                {
+                    return;
+                }
+            }
+
+            //insertion into the sorted best list
+            pos = isFull() ? found - 1 : found++;
+            while (pos > 0 && bestDist[pos - 1] > dist)
+            {
+                bestDist[pos] = bestDist[pos - 1];
+                bestLine[pos] = bestLine[pos - 1];
+                pos--;
+            }
+            bestDist[pos] = dist;
+            bestLine[pos] = line;
+        }
+
+        List<T> hits()
+        {
+            List<T> hits = new ArrayList<T>(found);
+
+            for (int ii = 0; ii < found; ii++)
+            {
+                hits.add(hit(bestLine[ii], bestDist[ii]));
+            }
+
+            return hits;
+        }
+    }
+
+    /**
+     * Radius search, keeps every line in range
+     */
+    private class RadiusSearch extends Search
+    {
+        private double radius;
+        private Map<Integer, Double> found;
+
+        RadiusSearch(double qLat, double qLon, double radius)
+        {
+            super(qLat, qLon);
+            this.radius = radius;
+            this.found = new HashMap<Integer, Double>();
+        }
+
+        void offer(int line)
+        {
+            double dist = distance(line);
+
+            if (dist <= radius)
+            {
+                found.put(line, dist);
+            }
+        }
+
+        List<T> hits()
+        {
+            List<Map.Entry<Integer, Double>> sorted;
+            List<T> hits = new ArrayList<T>(found.size());
+
+            sorted = new ArrayList<Map.Entry<Integer, Double>>(
+                found.entrySet());
+            Collections.sort(sorted,
+                new Comparator<Map.Entry<Integer, Double>>()
+            {
+                public int compare(Map.Entry<Integer, Double> entry1,
+                    Map.Entry<Integer, Double> entry2)
+                {
+                    return Double.compare(entry1.getValue(),
+                        entry2.getValue());
+                }
+            });
+            for (Map.Entry<Integer, Double> entry : sorted)
+            {
+                hits.add(hit(entry.getKey(), entry.getValue()));
+            }
+
+            return hits;
+        }
+    }
+
+    /**
+     * Bounding box search, keeps every line crossing the box
+     */
+    private class BoxSearch extends Search
+    {
+        private double minLat, minLon, maxLat, maxLon;
+        private Set<Integer> found;
+
+        BoxSearch(double minLat, double minLon, double maxLat,
+            double maxLon)
+        {
+            super((minLat + maxLat) / 2, (minLon + maxLon) / 2);
+            this.minLat = minLat;
+            this.minLon = minLon;
+            this.maxLat = maxLat;
+            this.maxLon = maxLon;
+            this.found = new LinkedHashSet<Integer>();
+        }
+
+        void offer(int line)
+        {
+            double lat1 = coords[line * 4];
+            double lon1 = coords[line * 4 + 1];
+            double lat2 = coords[line * 4 + 2];
+            double lon2 = coords[line * 4 + 3];
+
+            //compare on the same side of the antimeridian as the box
+            if (Math.abs(lon2 - lon1) > 180)
+            {
+                lon2 += lon2 < lon1 ? 360 : -360;
+            }
+            for (int shift = -360; shift <= 360; shift += 360)
+            {
+                if (crosses(lat1, lon1 + shift, lat2, lon2 + shift))
+                {
+                    found.add(line);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Clips the line from point 1 to point 2 to the box, if anything
+         * is left it crosses the box
+         */
+        private boolean crosses(double lat1, double lon1, double lat2,
+            double lon2)
+        {
+            double[] p = {lon1 - lon2, lon2 - lon1, lat1 - lat2, lat2 - lat1};
+            double[] q = {lon1 - minLon, maxLon - lon1, lat1 - minLat,
+                maxLat - lat1};
+            double t0 = 0;
+            double t1 = 1;
+            double t;
+
+            for (int ii = 0; ii < 4; ii++)
+            {
+                if (p[ii] == 0)
+                {
+                    if (q[ii] < 0)
+                    {
+                        return false;
+                    }
+                }
+                else
+                {
+                    t = q[ii] / p[ii];
+                    if (p[ii] < 0)
+                    {
+                        t0 = Math.max(t0, t);
+                    }
+                    else
+                    {
+                        t1 = Math.min(t1, t);
+                    }
+                }
+            }
+
+            return t0 <= t1;
+        }
+
+        List<T> hits()
+        {
+            List<T> hits = new ArrayList<T>(found.size());
+
+            for (int line : found)
+            {
+                hits.add(hit(line, 0));
+            }
+
+            return hits;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package main.model;
+
+/**
+ * Smooths GPS jitter with a constant velocity Kalman filter, so a
+ * trekker standing near a waypoint is not seen to step in and out of it.
+ * East, north and up are filtered separately, each as a position and a
+ * velocity nudged by random acceleration, with the fix's error taken as
+ * the measurement noise. Each fix is replaced by the filtered position.
+ *
+ * Positions are kept in degrees and metres of altitude, velocities and
+ * errors in metres, converted at the estimated latitude. The state is
+ * primitive fields, nothing is allocated a fix.
+ *
+ * @author Owen Frere
+ */
+public class KalmanFilter implements FixFilter
+{
+    public static final double DEFAULT_ACCEL = 0.5;
+    public static final double DEFAULT_H_ERROR = 5.0;
+    public static final double DEFAULT_V_ERROR = 10.0;
+
+    private static final double METRES_PER_DEGREE =
+        6371000.0 * Math.PI / 180;
+
+    private double accel;
+    private double hError, vError;
+
+    private boolean started;
+    private long lastTime;
+    private Axis east, north, up;
+
+    /**
+     * Constructor, for a walker with 5m horizontal and 10m vertical fixes
+     */
+    public KalmanFilter()
+    {
+        this(DEFAULT_ACCEL, DEFAULT_H_ERROR, DEFAULT_V_ERROR);
+    }
+
+    /**
+     * Constructor
+     * @param accel as double, typical change in speed in m/s a second
+     * @param hError as double, typical horizontal fix error in metres
+     * @param vError as double, typical vertical fix error in metres
+     * @throws IllegalArgumentException (unchecked) if any is not positive
+     */
+    public KalmanFilter(double accel, double hError, double vError)
+    {
+        if (!(accel > 0) || !(hError > 0) || !(vError > 0))
+        {
+            throw new IllegalArgumentException("Invalid Kalman filter");
+        }
+
+        this.accel = accel;
+        this.hError = hError;
+        this.vError = vError;
+        this.east = new Axis();
+        this.north = new Axis();
+        this.up = new Axis();
+    }
+
+    /**
+     * Replaces a fix with the filtered position once it is taken in. The
+     * first fix is kept as it is
+     * @param batch as FixBatch
+     * @param fix as int
+     * @return always true
+     */
+    @Override
+    public boolean filter(FixBatch batch, int fix)
+    {
+        double lat = batch.getLat(fix);
+        double lon = batch.getLon(fix);
+        long time = batch.getTime(fix);
+        double q = accel * accel;
+        double seconds, latScale, lonScale, dLon;
+
+        if (!started)
+        {
+            east.start(lon, hError * hError);
+            north.start(lat, hError * hError);
+            up.start(batch.getAlt(fix), vError * vError);
+            started = true;
+            lastTime = time;
+            return true;
+        }
+
+        seconds = Math.max(0, time - lastTime) / 1000.0;
+        lastTime = time;
+        latScale = METRES_PER_DEGREE;
+        lonScale = METRES_PER_DEGREE * Math.cos(Math.toRadians(
+            north.pos));
+
+        east.predict(seconds, q, lonScale);
+        north.predict(seconds, q, latScale);
+        up.predict(seconds, q, 1);
+
+        //longitude measured the short way round from the estimate
+        dLon = lon - east.pos;
+        if (dLon > 180)
+        {
+            dLon -= 360;
+        }
+        else if (dLon < -180)
+        {
+            dLon += 360;
+        }
+        east.update(dLon * lonScale, hError * hError, lonScale);
+        north.update((lat - north.pos) * latScale, hError * hError,
+            latScale);
+        up.update(batch.getAlt(fix) - up.pos, vError * vError, 1);
+
+        if (east.pos > 180)
+        {
+            east.pos -= 360;
+        }
+        else if (east.pos < -180)
+        {
+            east.pos += 360;
+        }
+        batch.set(fix, north.pos, east.pos, up.pos);
+        return true;
+    }
+
+    /**
+     * Returns a new filter with the same noise settings
+     * @return fresh filter
+     */
+    @Override
+    public FixFilter fresh()
+    {
+        return new KalmanFilter(accel, hError, vError);
+    }
+
+    /**
+     * Position and velocity along one direction with their covariance,
+     * position in its own units and everything else in metres
+     */
+    private static class Axis
+    {
+        private double pos, vel;
+        private double pp, pv, vv;
+
+        private void start(double position, double error)
+        {
+            pos = position;
+            vel = 0;
+            pp = error;
+            pv = 0;
+            //speed unknown, allow a brisk walk either way
+            vv = 4;
+        }
+
+        /**
+         * Moves the state on by the time since the last fix
+         * @param dt as double, seconds
+         * @param q as double, acceleration variance
+         * @param scale as double, metres per unit of position
+         */
+        private void predict(double dt, double q, double scale)
+        {
+            double dt2 = dt * dt;
+
+            pos += vel * dt / scale;
+            pp += 2 * dt * pv + dt2 * vv + q * dt2 * dt2 / 4;
+            pv += dt * vv + q * dt2 * dt / 2;
+            vv += q * dt2;
+        }
+
+        /**
+         * Takes in a measured position
+         * @param residual as double, metres from predicted position
+         * @param noise as double, measurement variance
+         * @param scale as double, metres per unit of position
+         */
+        private void update(double residual, double noise, double scale)
+        {
+            double s = pp + noise;
+            double kp = pp / s;
+            double kv = pv / s;
+
+            pos += kp * residual / scale;
+            vel += kv * residual;
+            vv -= kv * pv;
+            pv -= kp * pv;
+            pp -= kp * pp;
+        }
+    }
+}
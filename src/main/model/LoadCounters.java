@@ -0,0 +1,138 @@
+package main.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Singleton class of running totals over every route data load in the
+ * process. Registered with the platform MBean server as
+ * main.model:type=LoadCounters so it can be read by any JMX client.
+ *
+ * @author Owen Frere
+ */
+public class LoadCounters implements LoadCountersMXBean
+{
+    private static LoadCounters instance;
+
+    private AtomicLong loads;
+    private AtomicLong units;
+    private AtomicLong lines;
+    private AtomicLong built;
+    private AtomicLong rejected;
+    private AtomicLong reused;
+    private AtomicLong splitNanos;
+    private AtomicLong buildNanos;
+    private AtomicLong segmentNanos;
+    private AtomicLong linkNanos;
+
+    /**
+     * Constructor
+     */
+    private LoadCounters()
+    {
+        loads = new AtomicLong();
+        units = new AtomicLong();
+        lines = new AtomicLong();
+        built = new AtomicLong();
+        rejected = new AtomicLong();
+        reused = new AtomicLong();
+        splitNanos = new AtomicLong();
+        buildNanos = new AtomicLong();
+        segmentNanos = new AtomicLong();
+        linkNanos = new AtomicLong();
+    }
+
+    /**
+     * Instantiates and registers the singleton if required and then
+     * returns instance
+     * @return singleton instance
+     */
+    public static synchronized LoadCounters getInstance()
+    {
+        if (instance == null)
+        {
+            instance = new LoadCounters();
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    instance, new ObjectName("main.model:type=LoadCounters"));
+            }
+            catch (JMException | SecurityException e)
+            {
+                //counters still work, just aren't published
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Adds a finished load to the totals
+     * @param report as LoadReport
+     */
+    void record(LoadReport report)
+    {
+        loads.incrementAndGet();
+        units.addAndGet(report.getUnits());
+        lines.addAndGet(report.getLines());
+        built.addAndGet(report.getBuilt());
+        rejected.addAndGet(report.getRejected());
+        reused.addAndGet(report.getReused());
+        splitNanos.addAndGet(report.getSplitNanos());
+        buildNanos.addAndGet(report.getBuildNanos());
+        segmentNanos.addAndGet(report.getSegmentNanos());
+        linkNanos.addAndGet(report.getLinkNanos());
+    }
+
+    public long getLoads()
+    {
+        return loads.get();
+    }
+
+    public long getUnits()
+    {
+        return units.get();
+    }
+
+    public long getLines()
+    {
+        return lines.get();
+    }
+
+    public long getRoutesBuilt()
+    {
+        return built.get();
+    }
+
+    public long getRoutesRejected()
+    {
+        return rejected.get();
+    }
+
+    public long getRoutesReused()
+    {
+        return reused.get();
+    }
+
+    public long getSplitNanos()
+    {
+        return splitNanos.get();
+    }
+
+    public long getBuildNanos()
+    {
+        return buildNanos.get();
+    }
+
+    public long getSegmentNanos()
+    {
+        return segmentNanos.get();
+    }
+
+    public long getLinkNanos()
+    {
+        return linkNanos.get();
+    }
+}
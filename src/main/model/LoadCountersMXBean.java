@@ -0,0 +1,20 @@
+package main.model;
+
+/**
+ * Management interface for the LoadCounters, published over JMX
+ *
+ * @author Owen Frere
+ */
+public interface LoadCountersMXBean
+{
+    public long getLoads();
+    public long getUnits();
+    public long getLines();
+    public long getRoutesBuilt();
+    public long getRoutesRejected();
+    public long getRoutesReused();
+    public long getSplitNanos();
+    public long getBuildNanos();
+    public long getSegmentNanos();
+    public long getLinkNanos();
+}
@@ -0,0 +1,158 @@
+package main.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Report of a single route data load by the TrekFactory: where the time
+ * went, how much data was read and what happened to each route. Every
+ * name in the invalid set has a rejection reason, including names that
+ * were referenced as sub-routes but had no data.
+ *
+ * Segment build and link validation times are summed over all threads,
+ * so in a parallel build they can exceed the route build time.
+ *
+ * @author Owen Frere
+ */
+public class LoadReport
+{
+    private long splitNanos;
+    private long buildNanos;
+    private long segmentNanos;
+    private long linkNanos;
+    private long units;
+    private long lines;
+    private int built;
+    private int rejected;
+    private int reused;
+    private Map<String, String> rejections;
+
+    /**
+     * Constructor
+     */
+    LoadReport()
+    {
+        rejections = Collections.emptyMap();
+    }
+
+    /**
+     * Sets the time spent in each phase of the load
+     * @param split as long, nanoseconds reading the source into routes
+     * @param build as long, nanoseconds building routes
+     * @param segment as long, nanoseconds of build spent on segments
+     * @param link as long, nanoseconds of build spent validating links
+     */
+    void setPhaseNanos(long split, long build, long segment, long link)
+    {
+        this.splitNanos = split;
+        this.buildNanos = build;
+        this.segmentNanos = segment;
+        this.linkNanos = link;
+    }
+
+    /**
+     * Sets the size of the source read
+     * @param units as long, bytes or characters depending on source
+     * @param lines as long
+     */
+    void setInput(long units, long lines)
+    {
+        this.units = units;
+        this.lines = lines;
+    }
+
+    /**
+     * Sets the route counts of the load
+     * @param built as int, routes built by this load
+     * @param rejected as int, routes with data that are invalid
+     * @param reused as int, routes carried over from the previous load
+     */
+    void setRoutes(int built, int rejected, int reused)
+    {
+        this.built = built;
+        this.rejected = rejected;
+        this.reused = reused;
+    }
+
+    /**
+     * Sets the reason each invalid route name was rejected
+     * @param rejections as Map<String, String>
+     */
+    void setRejections(Map<String, String> rejections)
+    {
+        this.rejections = Collections.unmodifiableMap(rejections);
+    }
+
+    public long getSplitNanos()
+    {
+        return splitNanos;
+    }
+
+    public long getBuildNanos()
+    {
+        return buildNanos;
+    }
+
+    public long getSegmentNanos()
+    {
+        return segmentNanos;
+    }
+
+    public long getLinkNanos()
+    {
+        return linkNanos;
+    }
+
+    /**
+     * Returns the size of the source read, in bytes for a file source and
+     * characters for an in memory one
+     * @return units read
+     */
+    public long getUnits()
+    {
+        return units;
+    }
+
+    public long getLines()
+    {
+        return lines;
+    }
+
+    public int getBuilt()
+    {
+        return built;
+    }
+
+    public int getRejected()
+    {
+        return rejected;
+    }
+
+    public int getReused()
+    {
+        return reused;
+    }
+
+    /**
+     * Returns the reason each invalid route name was rejected, keyed by
+     * route name
+     * @return rejection reasons
+     */
+    public Map<String, String> getRejections()
+    {
+        return rejections;
+    }
+
+    /**
+     * Returns a String describing the state of the report
+     * @return description of report
+     */
+    public String toString()
+    {
+        return "Loaded " + units + " units, " + lines + " lines. Routes "
+            + built + " built, " + rejected + " rejected, " + reused
+            + " reused. Split " + splitNanos / 1000000 + "ms, build "
+            + buildNanos / 1000000 + "ms (segments " + segmentNanos / 1000000
+            + "ms, links " + linkNanos / 1000000 + "ms)";
+    }
+}
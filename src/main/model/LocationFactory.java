@@ -1,16 +1,130 @@
 package main.model;
 
 /**
-* Factory for creation of 2D and 3D location objects
+* Factory for creation of 2D and 3D location objects.
+*
+* In interning mode route points are shared, intern returns the same
+* Waypoint for every request for the same lat/lon/alt. Points are kept in
+* an open addressing table keyed by lat/lon quantised to 1e-7 degrees and
+* altitude to millimetres, a point is only shared with one of exactly the
+* same coordinates. The table is split in shards locked separately so
+* routes can be built in parallel.
 * @author Owen Frere
 */
 public class LocationFactory
 {
+    private static final double DEGREE_STEPS = 1e7;
+    private static final double ALT_STEPS = 1e3;
+    private static final int SHARDS = 16;
+
+    private boolean unitVectors;
+    private boolean interning;
+    private PointTable[] tables;
+
     /**
      * Constructor
      */
     public LocationFactory()
     {
+        unitVectors = false;
+        interning = false;
+        tables = new PointTable[SHARDS];
+        clearInterned();
+    }
+
+    /**
+     * Sets whether created locations carry their unit vector. Costs four
+     * trig calls per location when created, but lets GeoUtils check if
+     * two locations are near each other with no trig at all
+     * @param unitVectors as boolean
+     */
+    public void setUnitVectors(boolean unitVectors)
+    {
+        this.unitVectors = unitVectors;
+        clearInterned();
+    }
+
+    /**
+     * Sets whether intern shares Waypoints between equal route points or
+     * creates a new one each time
+     * @param interning as boolean
+     */
+    public void setInterning(boolean interning)
+    {
+        this.interning = interning;
+        clearInterned();
+    }
+
+    /**
+     * Forgets all shared points, later requests create them afresh
+     */
+    public void clearInterned()
+    {
+        for (int ii = 0; ii < SHARDS; ii++)
+        {
+            tables[ii] = new PointTable();
+        }
+    }
+
+    /**
+     * Returns the number of distinct points shared since last cleared
+     * @return count of shared points
+     */
+    public int getInternedCount()
+    {
+        int count = 0;
+
+        for (PointTable table : tables)
+        {
+            count += table.getCount();
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the number of requests answered with an existing point
+     * since last cleared
+     * @return count of points reused
+     */
+    public long getInternHits()
+    {
+        long hits = 0;
+
+        for (PointTable table : tables)
+        {
+            hits += table.getHits();
+        }
+
+        return hits;
+    }
+
+    /**
+     * Returns a Waypoint for a route point, shared with every other point
+     * at the same location when interning
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     * @return representation of location
+     */
+    public Waypoint intern(double lat, double lon, double alt)
+    {
+        long latLon;
+        int altKey, hash;
+
+        if (!interning)
+        {
+            return create(lat, lon, alt);
+        }
+
+        latLon = Math.round((lat + 90.0) * DEGREE_STEPS) << 32 |
+            Math.round((lon + 180.0) * DEGREE_STEPS);
+        altKey = (int)Math.round(alt * ALT_STEPS);
+        hash = mix(latLon, altKey);
+
+        //top bits pick the shard, bottom bits the slot within it
+        return tables[hash >>> 28].intern(latLon, altKey, hash, lat, lon,
+            alt);
     }
     
     /**
@@ -35,8 +149,130 @@ public class LocationFactory
      */
     public GPSLoc create(double lat, double lon)
     {
-        GPSLoc loc = new GPSLoc(lat, lon);
+        GPSLoc loc = new GPSLoc(lat, lon, unitVectors);
 
         return loc;
     }
+
+    /**
+     * Spreads the bits of a point's key over an int
+     * @param latLon as long
+     * @param altKey as int
+     * @return hash of key
+     */
+    private static int mix(long latLon, int altKey)
+    {
+        long hash = latLon * 0x9E3779B97F4A7C15L + altKey;
+
+        hash ^= hash >>> 29;
+        hash *= 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 32;
+
+        return (int)hash;
+    }
+
+    /**
+     * One shard of the shared points. The quantised lat/lon and alt of a
+     * slot sit side by side in one array so a probe reads one cache line
+     */
+    private class PointTable
+    {
+        private long[] keys;
+        private Waypoint[] points;
+        private int count;
+        private long hits;
+
+        /**
+         * Constructor
+         */
+        private PointTable()
+        {
+            keys = new long[128];
+            points = new Waypoint[64];
+        }
+
+        /**
+         * Returns the shared point for the coordinates, creating it if
+         * there is none
+         * @param latLon as long, quantised lat and lon
+         * @param altKey as int, quantised alt
+         * @param hash as int
+         * @param lat as double
+         * @param lon as double
+         * @param alt as double
+         * @return shared point
+         */
+        private synchronized Waypoint intern(long latLon, int altKey,
+            int hash, double lat, double lon, double alt)
+        {
+            int mask = points.length - 1;
+            int slot = hash & mask;
+            Waypoint wp;
+
+            while ((wp = points[slot]) != null)
+            {
+                //equal keys only share if the coordinates are exact
+                if (keys[slot * 2] == latLon && keys[slot * 2 + 1] == altKey
+                    && wp.getLat() == lat && wp.getLon() == lon &&
+                    wp.getAlt() == alt)
+                {
+                    hits++;
+                    return wp;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            wp = create(lat, lon, alt);
+            keys[slot * 2] = latLon;
+            keys[slot * 2 + 1] = altKey;
+            points[slot] = wp;
+            count++;
+            if (count * 4 > points.length * 3)
+            {
+                grow();
+            }
+
+            return wp;
+        }
+
+        /**
+         * Doubles the table, placing each point again. Slots come from
+         * the bottom bits of the hash so it is worked out again
+         */
+        private void grow()
+        {
+            long[] oldKeys = keys;
+            Waypoint[] oldPoints = points;
+            int mask = oldPoints.length * 2 - 1;
+            int slot;
+
+            keys = new long[oldKeys.length * 2];
+            points = new Waypoint[oldPoints.length * 2];
+            for (int ii = 0; ii < oldPoints.length; ii++)
+            {
+                if (oldPoints[ii] != null)
+                {
+                    slot = mix(oldKeys[ii * 2], (int)oldKeys[ii * 2 + 1]) &
+                        mask;
+                    while (points[slot] != null)
+                    {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot * 2] = oldKeys[ii * 2];
+                    keys[slot * 2 + 1] = oldKeys[ii * 2 + 1];
+                    points[slot] = oldPoints[ii];
+                }
+            }
+        }
+
+        private synchronized int getCount()
+        {
+            return count;
+        }
+
+        private synchronized long getHits()
+        {
+            return hits;
+        }
+    }
 }
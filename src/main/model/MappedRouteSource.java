@@ -0,0 +1,96 @@
+package main.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * RouteSource backed by a memory mapped ASCII or UTF-8 route file. The
+ * file is never copied onto the heap, bytes are read from the mapping as
+ * the tokenizer walks it and only names and descriptions are decoded.
+ * Files are limited to 2GB, the size of a single mapping. The mapping is
+ * only read at absolute positions and each thread decodes into a scratch
+ * array of its own, so one source can be read by many threads at once.
+ *
+ * @author Owen Frere
+ * @throws IOException if the file cannot be opened or mapped
+ */
+public class MappedRouteSource implements RouteSource
+{
+    private ByteBuffer buf;
+    private ThreadLocal<byte[]> scratch;
+
+    /**
+     * Constructor
+     * @param file as Path
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedRouteSource(Path file)
+        throws IOException
+    {
+        long size;
+
+        try (FileChannel chan = FileChannel.open(file,
+            StandardOpenOption.READ))
+        {
+            size = chan.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException("Route file too large to map");
+            }
+
+            buf = chan.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        //skip a UTF-8 byte order mark
+        if (size >= 3 && (buf.get(0) & 0xFF) == 0xEF &&
+            (buf.get(1) & 0xFF) == 0xBB && (buf.get(2) & 0xFF) == 0xBF)
+        {
+            buf.position(3);
+            buf = buf.slice();
+        }
+
+        scratch = new ThreadLocal<byte[]>()
+        {
+            @Override
+            protected byte[] initialValue()
+            {
+                return new byte[256];
+            }
+        };
+    }
+
+    @Override
+    public int length()
+    {
+        return buf.limit();
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        return (char)(buf.get(index) & 0xFF);
+    }
+
+    @Override
+    public String decode(int start, int end)
+    {
+        int len = end - start;
+        byte[] bytes = scratch.get();
+
+        if (len > bytes.length)
+        {
+            bytes = new byte[Math.max(len, bytes.length * 2)];
+            scratch.set(bytes);
+        }
+        for (int ii = 0; ii < len; ii++)
+        {
+            bytes[ii] = buf.get(start + ii);
+        }
+
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+}
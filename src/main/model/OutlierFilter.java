@@ -0,0 +1,128 @@
+package main.model;
+
+/**
+ * Rejects fixes that could only be reached from the last kept fix by
+ * moving implausibly fast, as when a reflected signal puts the trekker
+ * hundreds of metres away for one fix. After a run of rejections the
+ * next fix is kept anyway, so a genuine jump, such as the first fix
+ * after the signal returns, is only held back briefly.
+ *
+ * Fixes are allowed the distance covered at the greatest speed plus the
+ * jitter two honest fixes can show, so fixes close together in time are
+ * not rejected for their error alone. Distances are measured on a plane
+ * through the last fix, which is plenty for telling a walk from a jump.
+ *
+ * @author Owen Frere
+ */
+public class OutlierFilter implements FixFilter
+{
+    public static final double DEFAULT_MAX_SPEED = 15.0;
+    public static final double DEFAULT_JITTER = 25.0;
+    public static final int DEFAULT_MAX_REJECTS = 5;
+
+    private static final double METRES_PER_DEGREE =
+        6371000.0 * Math.PI / 180;
+
+    private double maxSpeed;
+    private double jitter;
+    private int maxRejects;
+
+    //last fix kept
+    private boolean started;
+    private double lastLat, lastLon;
+    private long lastTime;
+    private int rejects;
+
+    /**
+     * Constructor, allowing up to 15 m/s with 25m of jitter and 5
+     * rejections in a row
+     */
+    public OutlierFilter()
+    {
+        this(DEFAULT_MAX_SPEED, DEFAULT_JITTER, DEFAULT_MAX_REJECTS);
+    }
+
+    /**
+     * Constructor
+     * @param maxSpeed as double, metres a second
+     * @param jitter as double, metres allowed between fixes at any speed
+     * @param maxRejects as int, rejections in a row before a fix is kept
+     * @throws IllegalArgumentException (unchecked) if speed or rejections
+     * are not positive or jitter is negative
+     */
+    public OutlierFilter(double maxSpeed, double jitter, int maxRejects)
+    {
+        if (!(maxSpeed > 0) || !(jitter >= 0) || maxRejects < 1)
+        {
+            throw new IllegalArgumentException("Invalid outlier filter");
+        }
+
+        this.maxSpeed = maxSpeed;
+        this.jitter = jitter;
+        this.maxRejects = maxRejects;
+    }
+
+    /**
+     * Rejects a fix too far from the last kept fix for the time between
+     * them. Fixes at the same time as the last are allowed a millisecond
+     * of travel
+     * @param batch as FixBatch
+     * @param fix as int
+     * @return is the fix kept
+     */
+    @Override
+    public boolean filter(FixBatch batch, int fix)
+    {
+        double lat = batch.getLat(fix);
+        double lon = batch.getLon(fix);
+        long time = batch.getTime(fix);
+        double seconds, reach, x, y;
+
+        if (started && rejects < maxRejects)
+        {
+            seconds = Math.max(1, time - lastTime) / 1000.0;
+            reach = maxSpeed * seconds + jitter;
+            x = lonDiff(lon, lastLon) * METRES_PER_DEGREE *
+                Math.cos(Math.toRadians(lastLat));
+            y = (lat - lastLat) * METRES_PER_DEGREE;
+            if (x * x + y * y > reach * reach)
+            {
+                rejects++;
+                return false;
+            }
+        }
+
+        started = true;
+        lastLat = lat;
+        lastLon = lon;
+        lastTime = time;
+        rejects = 0;
+        return true;
+    }
+
+    /**
+     * Returns a new filter with the same limits
+     * @return fresh filter
+     */
+    @Override
+    public FixFilter fresh()
+    {
+        return new OutlierFilter(maxSpeed, jitter, maxRejects);
+    }
+
+    private static double lonDiff(double lon, double from)
+    {
+        double diff = lon - from;
+
+        if (diff > 180)
+        {
+            diff -= 360;
+        }
+        else if (diff < -180)
+        {
+            diff += 360;
+        }
+
+        return diff;
+    }
+}
@@ -0,0 +1,28 @@
+package main.model;
+
+/**
+* What a TrekLocator does with fixes for an observer that has fallen a
+* full buffer behind
+*
+* @author Owen Frere
+*/
+public enum OverflowPolicy
+{
+    /**
+     * The oldest unread fixes are overwritten, the observer carries on
+     * from the oldest fix still held
+     */
+    DROP_OLDEST,
+
+    /**
+     * The unread fixes are collapsed to the newest, the observer carries
+     * on from the latest location
+     */
+    COALESCE,
+
+    /**
+     * The receiving thread waits for the observer to make room, no fix
+     * is lost
+     */
+    BLOCK
+}
@@ -5,6 +5,11 @@ import java.util.*;
 /**
  * Represents a route between 2 3D points by a series of straight
  * line paths between 3D locations.
+ *
+ * A route's parts never change once it is constructed, so its length,
+ * climb, descent, ends and segment count are worked out then from its
+ * parts' own totals. A sub-route shared by many routes is only ever
+ * summed once.
  * @throws IllegalArgumentException (unchecked) if null list of TrekParts
  * is provided
  */
@@ -14,6 +19,12 @@ public class Route extends TrekPart
     private String name;
     private String desc;
     private List<TrekPart> parts;
+    private Waypoint start;
+    private Waypoint end;
+    private double length;
+    private double altIncrease;
+    private double altDecrease;
+    private int segCount;
     
     /**
      * Constructor
@@ -33,7 +44,19 @@ public class Route extends TrekPart
 
         this.name = name;
         this.desc = desc;
-        this.parts = parts;
+        //copied so later changes to the given list cannot affect totals
+        this.parts = Collections.unmodifiableList(
+            new ArrayList<TrekPart>(parts));
+        this.start = parts.get(0).getStart();
+        this.end = parts.get(parts.size() - 1).getEnd();
+
+        for (TrekPart tp : this.parts)
+        {
+            length += tp.getLength();
+            altIncrease += tp.getAltIncrease();
+            altDecrease += Math.abs(tp.getAltDecrease());
+            segCount += tp.getSegmentCount();
+        }
     }
 
     /**
@@ -42,7 +65,7 @@ public class Route extends TrekPart
      */
     public Waypoint getStart()
     {
-        return parts.get(0).getStart();
+        return start;
     }
 
     /**
@@ -51,7 +74,7 @@ public class Route extends TrekPart
      */
     public Waypoint getEnd()
     {
-        return parts.get(parts.size()-1).getEnd();
+        return end;
     }
 
     /**
@@ -60,14 +83,7 @@ public class Route extends TrekPart
      */
     public double getLength()
     {
-        double lengthTotal = 0;
-
-        for (TrekPart tp : parts)
-        {
-            lengthTotal += tp.getLength();
-        }
-
-        return lengthTotal;
+        return length;
     }
 
     /**
@@ -89,22 +105,44 @@ public class Route extends TrekPart
     }
 
     /**
-     * Returns the List<Segment> that represents all straight
+     * Returns a new List<Segment> that represents all straight
      * line paths in the route
      * @return list of paths in route
      */
     public List<Segment> getSegments()
     {
-        List<Segment> segs = new LinkedList<Segment>();
+        final List<Segment> segs = new ArrayList<Segment>(segCount);
 
-        for (TrekPart tp : parts)
+        forEachSegment(new SegmentVisitor()
         {
-            segs.addAll(tp.getSegments());
-        }
+            @Override
+            public void visit(Segment seg)
+            {
+                segs.add(seg);
+            }
+        });
 
         return segs;
     }
 
+    /**
+     * Returns the number of straight line paths in the route
+     * @return count of segments
+     */
+    public int getSegmentCount()
+    {
+        return segCount;
+    }
+
+    /**
+     * Returns the List<TrekPart> the route is directly made of
+     * @return parts of route
+     */
+    List<TrekPart> getParts()
+    {
+        return parts;
+    }
+
     /**
      * Returns the total of climb of upward segments in the 
      * route as a double
@@ -112,14 +150,7 @@ public class Route extends TrekPart
      */
     public double getAltIncrease()
     {
-        double altIncreaseTotal = 0;
-
-        for (TrekPart tp : parts)
-        {
-            altIncreaseTotal += tp.getAltIncrease();
-        }
-
-        return altIncreaseTotal;
+        return altIncrease;
     }
 
     /**
@@ -129,14 +160,7 @@ public class Route extends TrekPart
      */
     public double getAltDecrease()
     {
-        double altDecreaseTotal = 0;
-
-        for (TrekPart tp : parts)
-        {
-            altDecreaseTotal += Math.abs(tp.getAltDecrease());
-        }
-
-        return altDecreaseTotal;
+        return altDecrease;
     }
 
     /**
@@ -167,9 +191,9 @@ public class Route extends TrekPart
             {
                 if (desc.equals(tempRoute.getDesc()))
                 {
-                    if (this.getSegments().equals(tempRoute.getSegments()))
+                    if (segCount == tempRoute.getSegmentCount())
                     {
-                        return true;
+                        return sameSegments(tempRoute);
                     }
                 }
             }
@@ -177,4 +201,26 @@ public class Route extends TrekPart
 
         return false;
     }
+
+    /**
+     * Walks the segments of two routes of equal segment count together,
+     * checking each pair for equality
+     * @param other as Route
+     * @return are all segments equal
+     */
+    private boolean sameSegments(Route other)
+    {
+        Iterator<Segment> iter = segmentIterator();
+        Iterator<Segment> otherIter = other.segmentIterator();
+
+        while (iter.hasNext())
+        {
+            if (!iter.next().equals(otherIter.next()))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
 }
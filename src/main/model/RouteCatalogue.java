@@ -0,0 +1,190 @@
+package main.model;
+
+import java.util.*;
+
+/**
+ * A Map<String, Route> of a route source that holds only a RouteSummary
+ * of each valid route. Full routes are built from the source the first
+ * time they are looked up and the most recently used are kept in a cache
+ * of bounded size, so heap use follows the routes being viewed rather
+ * than the size of the source. Iterating over the values builds every
+ * route in turn, the summaries should be used to list routes instead.
+ *
+ * @author Owen Frere
+ */
+public class RouteCatalogue extends AbstractMap<String, Route>
+{
+    private RouteSource src;
+    private Map<String, RouteSummary> summaries;
+    private TrekFactory builder;
+    private Map<String, Route> cache;
+    private long builtCount;
+
+    /**
+     * Constructor
+     * @param src as RouteSource, the source the summaries were read from
+     * @param summaries as Map<String, RouteSummary>
+     * @param builder as TrekFactory, used only by this catalogue
+     * @param cacheSize as int, most routes kept built
+     */
+    RouteCatalogue(RouteSource src, Map<String, RouteSummary> summaries,
+        TrekFactory builder, final int cacheSize)
+    {
+        this.src = src;
+        this.summaries = summaries;
+        this.builder = builder;
+        this.builtCount = 0;
+
+        //access ordered so the least recently used route is evicted
+        this.cache = new LinkedHashMap<String, Route>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<String, Route> eldest)
+            {
+                return size() > cacheSize;
+            }
+        };
+
+        //summaries build their segments through the catalogue
+        for (RouteSummary summary : summaries.values())
+        {
+            summary.setCatalogue(this);
+        }
+    }
+
+    /**
+     * Returns the summary of a valid route, null if there is none
+     * @param name as String
+     * @return summary of route
+     */
+    public RouteSummary getSummary(String name)
+    {
+        return summaries.get(name);
+    }
+
+    /**
+     * Returns the summaries of all valid routes
+     * @return route summaries
+     */
+    public Collection<RouteSummary> getSummaries()
+    {
+        return Collections.unmodifiableCollection(summaries.values());
+    }
+
+    /**
+     * Returns the number of routes currently built and cached
+     * @return cached routes
+     */
+    public synchronized int getCachedCount()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of times a route has been built from the source
+     * @return routes built
+     */
+    public synchronized long getBuiltCount()
+    {
+        return builtCount;
+    }
+
+    /**
+     * Returns the route with a name, building it and any sub-routes that
+     * aren't cached if needed
+     * @param key as Object
+     * @return route, null if there's no valid route of that name
+     */
+    @Override
+    public synchronized Route get(Object key)
+    {
+        Route rte = cache.get(key);
+        Map<String, Route> built;
+        String name;
+
+        if (rte == null && summaries.containsKey(key))
+        {
+            name = (String)key;
+            built = builder.buildRoute(src, summaries, cache, name);
+            rte = built.get(name);
+            builtCount++;
+
+            //sub-routes are kept too, the requested route last so it is
+            //the most recently used
+            for (Map.Entry<String, Route> entry : built.entrySet())
+            {
+                if (!entry.getKey().equals(name))
+                {
+                    cache.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (rte != null)
+            {
+                cache.put(name, rte);
+            }
+        }
+
+        return rte;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return summaries.containsKey(key);
+    }
+
+    @Override
+    public int size()
+    {
+        return summaries.size();
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        return Collections.unmodifiableSet(summaries.keySet());
+    }
+
+    /**
+     * Returns the entries of the catalogue. Each entry's route is built
+     * as the iteration reaches it
+     * @return entries of catalogue
+     */
+    @Override
+    public Set<Map.Entry<String, Route>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<String, Route>>()
+        {
+            @Override
+            public Iterator<Map.Entry<String, Route>> iterator()
+            {
+                final Iterator<String> names = keySet().iterator();
+
+                return new Iterator<Map.Entry<String, Route>>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return names.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Route> next()
+                    {
+                        String name = names.next();
+
+                        return new AbstractMap.SimpleImmutableEntry<
+                            String, Route>(name, get(name));
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return summaries.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,187 @@
+package main.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Raw tokenized data for a single route, held until the route is built.
+ * Coordinates are stored as lat,lon,alt triples in one array.
+ *
+ * @author Owen Frere
+ */
+class RouteData
+{
+    private String name;
+    private String desc;
+    private int rows;
+    private double[] coords;
+    private boolean[] coordsOk;
+    private String[] descs;
+    private long fingerprint;
+    private int offset;
+    private int endOffset;
+
+    /**
+     * Constructor
+     * @param name as String
+     * @param desc as String
+     * @param offset as int, where the route starts in its source
+     */
+    RouteData(String name, String desc, int offset)
+    {
+        this.name = name;
+        this.desc = desc;
+        this.offset = offset;
+        this.endOffset = offset;
+        this.rows = 0;
+        this.coords = new double[12];
+        this.coordsOk = new boolean[4];
+        this.descs = new String[4];
+    }
+
+    /**
+     * Appends a data row to the route
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     * @param ok as boolean, were the coordinates valid numbers
+     * @param rowDesc as String
+     */
+    void addRow(double lat, double lon, double alt, boolean ok,
+        String rowDesc)
+    {
+        if (rows == descs.length)
+        {
+            coords = Arrays.copyOf(coords, rows * 6);
+            coordsOk = Arrays.copyOf(coordsOk, rows * 2);
+            descs = Arrays.copyOf(descs, rows * 2);
+        }
+
+        coords[rows * 3] = lat;
+        coords[rows * 3 + 1] = lon;
+        coords[rows * 3 + 2] = alt;
+        coordsOk[rows] = ok;
+        descs[rows] = rowDesc;
+        rows++;
+    }
+
+    /**
+     * Sets the hash of the raw lines the route was read from
+     * @param fingerprint as long
+     */
+    void setFingerprint(long fingerprint)
+    {
+        this.fingerprint = fingerprint;
+    }
+
+    long getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    /**
+     * Sets where the route ends in its source
+     * @param endOffset as int
+     */
+    void setEndOffset(int endOffset)
+    {
+        this.endOffset = endOffset;
+    }
+
+    int getOffset()
+    {
+        return offset;
+    }
+
+    int getEndOffset()
+    {
+        return endOffset;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    String getDesc()
+    {
+        return desc;
+    }
+
+    int getRows()
+    {
+        return rows;
+    }
+
+    double getLat(int row)
+    {
+        return coords[row * 3];
+    }
+
+    double getLon(int row)
+    {
+        return coords[row * 3 + 1];
+    }
+
+    double getAlt(int row)
+    {
+        return coords[row * 3 + 2];
+    }
+
+    boolean coordsOk(int row)
+    {
+        return coordsOk[row];
+    }
+
+    /**
+     * Returns the description of a row, null if it had none
+     * @param row as int
+     * @return row description
+     */
+    String getRowDesc(int row)
+    {
+        return descs[row];
+    }
+
+    /**
+     * Returns the name of the sub route a row refers to, or null if the
+     * row describes a plain segment
+     * @param row as int
+     * @return referenced route name
+     */
+    String getSubRoute(int row)
+    {
+        String rowDesc = descs[row];
+
+        if (rowDesc != null && rowDesc.length() > 0 &&
+            rowDesc.charAt(0) == '*')
+        {
+            return rowDesc.substring(1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the names of all sub-routes the route refers to. Only rows
+     * that start a part can refer to a sub-route
+     * @return referenced route names
+     */
+    Set<String> getSubRoutes()
+    {
+        Set<String> subs = new HashSet<String>();
+        String sub;
+
+        for (int ii = 0; ii < rows - 1; ii++)
+        {
+            sub = getSubRoute(ii);
+            if (sub != null)
+            {
+                subs.add(sub);
+            }
+        }
+
+        return subs;
+    }
+}
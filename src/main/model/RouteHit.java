@@ -0,0 +1,65 @@
+package main.model;
+
+/**
+ * A route found by a RouteStartIndex query with its distance from the
+ * query location
+ *
+ * @author Owen Frere
+ */
+public class RouteHit
+{
+    private String name;
+    private TrekPart route;
+    private double distance;
+
+    /**
+     * Constructor
+     * @param name as String
+     * @param route as TrekPart
+     * @param distance as double
+     */
+    RouteHit(String name, TrekPart route, double distance)
+    {
+        this.name = name;
+        this.route = route;
+        this.distance = distance;
+    }
+
+    /**
+     * Returns the name the route is known by
+     * @return name of route
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the route found, a RouteSummary if the routes are a lazy
+     * catalogue, otherwise the Route
+     * @return route found
+     */
+    public TrekPart getRoute()
+    {
+        return route;
+    }
+
+    /**
+     * Returns the metres from the query location to the start of the
+     * route, 0 for bounding box queries
+     * @return distance to route start
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+    /**
+     * Returns a String describing the state of the hit
+     * @return description of object's state
+     */
+    public String toString()
+    {
+        return "Route " + name + " starting " + distance + " metres away";
+    }
+}
@@ -0,0 +1,337 @@
+package main.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Reads and writes resolved route catalogues as a versioned binary
+ * snapshot so they can be reloaded without parsing or recalculating
+ * distances. The header records the source the routes were built from
+ * and the settings they were built with, a snapshot that no longer
+ * matches either is refused so the routes are parsed again.
+ *
+ * Layout (big endian):
+ * magic, version
+ * source stamp, then length and UTF-8 bytes of the build key
+ * string table: count, then length and UTF-8 bytes of each string
+ * segment table: count, then start lat,lon,alt, end lat,lon,alt,
+ *     length, altitude change and description string id of each
+ * route table: count, then name id, description id, part count and part
+ *     ids of each. A part id >= 0 is a segment, < 0 is route -(id+1).
+ *     Routes are stored after all of their sub-routes so a sub-route
+ *     shared by many parents is stored once.
+ * key table: count, then key string id and route id of each map entry
+ *
+ * @author Owen Frere
+ * @throws IOException if the snapshot cannot be read or written
+ */
+class RouteSnapshot
+{
+    public static final int MAGIC = 0x5452454B;
+    public static final int VERSION = 2;
+
+    private LocationFactory locFac;
+
+    /**
+     * Constructor
+     * @param locFac as LocationFactory
+     */
+    RouteSnapshot(LocationFactory locFac)
+    {
+        this.locFac = locFac;
+    }
+
+    /**
+     * Writes a Map<String, Route> and every route and segment reachable
+     * from it to a snapshot file
+     * @param routes as Map<String, Route>
+     * @param file as Path
+     * @param stamp as long, of the source the routes were built from
+     * @param buildKey as String, settings the routes were built with
+     * @throws IOException if writing fails
+     */
+    void write(Map<String, Route> routes, Path file, long stamp,
+        String buildKey)
+        throws IOException
+    {
+        Map<String, Integer> strIds = new HashMap<String, Integer>();
+        List<String> strs = new ArrayList<String>();
+        Map<Segment, Integer> segIds;
+        List<Segment> segs = new ArrayList<Segment>();
+        Map<Route, Integer> rteIds = new IdentityHashMap<Route, Integer>();
+        List<Route> rtes = orderRoutes(routes.values(), rteIds);
+        Segment seg;
+        byte[] bytes;
+
+        segIds = new IdentityHashMap<Segment, Integer>();
+
+        //gather everything the routes refer to before writing tables
+        for (Route rte : rtes)
+        {
+            strId(rte.getName(), strIds, strs);
+            strId(rte.getDesc(), strIds, strs);
+            for (TrekPart tp : rte.getParts())
+            {
+                if (tp instanceof Segment && !segIds.containsKey(tp))
+                {
+                    seg = (Segment)tp;
+                    segIds.put(seg, segs.size());
+                    segs.add(seg);
+                    strId(seg.getDesc(), strIds, strs);
+                }
+            }
+        }
+        for (String key : routes.keySet())
+        {
+            strId(key, strIds, strs);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(file), 65536)))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stamp);
+            bytes = buildKey.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+
+            out.writeInt(strs.size());
+            for (String str : strs)
+            {
+                bytes = str.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(segs.size());
+            for (Segment s : segs)
+            {
+                writeWaypoint(out, s.getStart());
+                writeWaypoint(out, s.getEnd());
+                out.writeDouble(s.getLength());
+                out.writeDouble(s.getAltChange());
+                out.writeInt(strIds.get(s.getDesc()));
+            }
+
+            out.writeInt(rtes.size());
+            for (Route rte : rtes)
+            {
+                out.writeInt(strIds.get(rte.getName()));
+                out.writeInt(strIds.get(rte.getDesc()));
+                out.writeInt(rte.getParts().size());
+                for (TrekPart tp : rte.getParts())
+                {
+                    if (tp instanceof Segment)
+                    {
+                        out.writeInt(segIds.get(tp));
+                    }
+                    else
+                    {
+                        out.writeInt(-(rteIds.get(tp) + 1));
+                    }
+                }
+            }
+
+            out.writeInt(routes.size());
+            for (Map.Entry<String, Route> entry : routes.entrySet())
+            {
+                out.writeInt(strIds.get(entry.getKey()));
+                out.writeInt(rteIds.get(entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot file into a Map<String, Route> with a single read
+     * of the whole file
+     * @param file as Path
+     * @param stamp as long, of the source the routes must be built from
+     * @param buildKey as String, settings they must be built with
+     * @return map of routes
+     * @throws IOException if reading fails or the snapshot is invalid or
+     * stale
+     */
+    Map<String, Route> read(Path file, long stamp, String buildKey)
+        throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        Map<String, Route> routes;
+        String[] strs;
+        Segment[] segs;
+        Route[] rtes;
+        List<TrekPart> parts;
+        String name, desc;
+        int count, id;
+
+        try
+        {
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION)
+            {
+                throw new IOException("Unsupported route snapshot");
+            }
+            if (buf.getLong() != stamp || !readString(buf).equals(buildKey))
+            {
+                throw new IOException("Stale route snapshot");
+            }
+
+            strs = new String[buf.getInt()];
+            for (int ii = 0; ii < strs.length; ii++)
+            {
+                strs[ii] = readString(buf);
+            }
+
+            segs = new Segment[buf.getInt()];
+            for (int ii = 0; ii < segs.length; ii++)
+            {
+                segs[ii] = new Segment(readWaypoint(buf), readWaypoint(buf),
+                    buf.getDouble(), buf.getDouble(), strs[buf.getInt()]);
+            }
+
+            rtes = new Route[buf.getInt()];
+            for (int ii = 0; ii < rtes.length; ii++)
+            {
+                name = strs[buf.getInt()];
+                desc = strs[buf.getInt()];
+
+                count = buf.getInt();
+                parts = new ArrayList<TrekPart>(count);
+                for (int jj = 0; jj < count; jj++)
+                {
+                    id = buf.getInt();
+                    //sub-routes are always stored before their parents
+                    if (id < 0 && -id - 1 >= ii)
+                    {
+                        throw new IOException("Corrupt route snapshot");
+                    }
+                    parts.add(id >= 0 ? segs[id] : rtes[-id - 1]);
+                }
+                rtes[ii] = new Route(name, desc, parts);
+            }
+
+            count = buf.getInt();
+            routes = new HashMap<String, Route>(count * 2);
+            for (int ii = 0; ii < count; ii++)
+            {
+                routes.put(strs[buf.getInt()], rtes[buf.getInt()]);
+            }
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException |
+            IllegalArgumentException e)
+        {
+            throw new IOException("Corrupt route snapshot");
+        }
+
+        return routes;
+    }
+
+    /**
+     * Orders all routes reachable from the provided routes so that every
+     * route comes after its sub-routes, assigning ids in that order.
+     * Walks with an explicit stack so nesting depth is not limited.
+     * @param roots as Collection<Route>
+     * @param rteIds as Map<Route, Integer>
+     * @return ordered routes
+     */
+    private List<Route> orderRoutes(Collection<Route> roots,
+        Map<Route, Integer> rteIds)
+    {
+        List<Route> order = new ArrayList<Route>();
+        Deque<Route> stack = new ArrayDeque<Route>();
+        Deque<Integer> next = new ArrayDeque<Integer>();
+        Route rte;
+        TrekPart tp;
+        int idx;
+
+        for (Route root : roots)
+        {
+            if (!rteIds.containsKey(root))
+            {
+                stack.push(root);
+                next.push(0);
+            }
+
+            while (!stack.isEmpty())
+            {
+                rte = stack.peek();
+                idx = next.pop();
+                if (idx < rte.getParts().size())
+                {
+                    next.push(idx + 1);
+                    tp = rte.getParts().get(idx);
+                    if (tp instanceof Route && !rteIds.containsKey(tp))
+                    {
+                        stack.push((Route)tp);
+                        next.push(0);
+                    }
+                }
+                else
+                {
+                    stack.pop();
+                    rteIds.put(rte, order.size());
+                    order.add(rte);
+                }
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Returns the string table id of a String, adding it if new
+     * @param str as String
+     * @param strIds as Map<String, Integer>
+     * @param strs as List<String>
+     * @return string id
+     */
+    private int strId(String str, Map<String, Integer> strIds,
+        List<String> strs)
+    {
+        Integer id = strIds.get(str);
+
+        if (id == null)
+        {
+            id = strs.size();
+            strIds.put(str, id);
+            strs.add(str);
+        }
+
+        return id;
+    }
+
+    /**
+     * Reads a length prefixed UTF-8 string
+     * @param buf as ByteBuffer
+     * @return string read
+     */
+    private String readString(ByteBuffer buf)
+    {
+        int len = buf.getInt();
+        String str = new String(buf.array(), buf.position(), len,
+            StandardCharsets.UTF_8);
+
+        buf.position(buf.position() + len);
+        return str;
+    }
+
+    private void writeWaypoint(DataOutputStream out, Waypoint wp)
+        throws IOException
+    {
+        out.writeDouble(wp.getLat());
+        out.writeDouble(wp.getLon());
+        out.writeDouble(wp.getAlt());
+    }
+
+    private Waypoint readWaypoint(ByteBuffer buf)
+    {
+        return locFac.intern(buf.getDouble(), buf.getDouble(),
+            buf.getDouble());
+    }
+}
@@ -0,0 +1,35 @@
+package main.model;
+
+/**
+ * Interface for sources of route data read by the RouteTokenizer.
+ * Characters are indexed as single units; all characters that give the
+ * route format its structure (newlines, commas, digits, '*') are ASCII
+ * so a source of encoded bytes may hand back raw bytes and only decode
+ * the text ranges that become names and descriptions.
+ *
+ * @author Owen Frere
+ */
+public interface RouteSource
+{
+    /**
+     * Returns the number of units in the source
+     * @return length of source
+     */
+    public int length();
+
+    /**
+     * Returns the unit at the given index. Only guaranteed to be the
+     * actual character for ASCII data
+     * @param index as int
+     * @return unit at index
+     */
+    public char charAt(int index);
+
+    /**
+     * Decodes a range of the source into a String
+     * @param start as int, inclusive
+     * @param end as int, exclusive
+     * @return decoded text of range
+     */
+    public String decode(int start, int end);
+}
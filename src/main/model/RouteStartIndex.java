@@ -0,0 +1,117 @@
+package main.model;
+
+import java.util.*;
+
+/**
+ * Spatial index over the start of every route of a Map<String, Route>,
+ * to list routes nearest first a page at a time. A page costs about as
+ * much as the routes before and on it, however many routes there are.
+ * Lazy catalogues are indexed from their summaries so no route is built.
+ *
+ * The index is a snapshot of the routes given to it, build a new one when
+ * the routes are reloaded.
+ *
+ * @author Owen Frere
+ * @throws IllegalArgumentException (unchecked) on invalid query values
+ */
+public class RouteStartIndex extends GridIndex<RouteHit>
+{
+    private String[] names;
+    private TrekPart[] routes;
+
+    /**
+     * Constructor, indexes with the default cell size
+     * @param rteMap as Map<String, Route>
+     */
+    public RouteStartIndex(Map<String, Route> rteMap)
+    {
+        this(rteMap, DEFAULT_CELL);
+    }
+
+    /**
+     * Constructor
+     * @param rteMap as Map<String, Route>
+     * @param cellDegrees as double, size of grid cells
+     */
+    public RouteStartIndex(Map<String, Route> rteMap, double cellDegrees)
+    {
+        super(cellDegrees);
+
+        double[] coords;
+        Waypoint start;
+        int ii = 0;
+
+        if (rteMap == null)
+        {
+            throw new IllegalArgumentException("Null routes");
+        }
+
+        names = new String[rteMap.size()];
+        routes = new TrekPart[rteMap.size()];
+        if (rteMap instanceof RouteCatalogue)
+        {
+            for (RouteSummary sum :
+                ((RouteCatalogue)rteMap).getSummaries())
+            {
+                names[ii] = sum.getName();
+                routes[ii] = sum;
+                ii++;
+            }
+        }
+        else
+        {
+            for (Map.Entry<String, Route> entry : rteMap.entrySet())
+            {
+                names[ii] = entry.getKey();
+                routes[ii] = entry.getValue();
+                ii++;
+            }
+        }
+
+        //each start is a line of no length
+        coords = new double[routes.length * 4];
+        for (ii = 0; ii < routes.length; ii++)
+        {
+            start = routes[ii].getStart();
+            coords[ii * 4] = start.getLat();
+            coords[ii * 4 + 1] = start.getLon();
+            coords[ii * 4 + 2] = start.getLat();
+            coords[ii * 4 + 3] = start.getLon();
+        }
+
+        index(coords);
+    }
+
+    /**
+     * Returns one page of routes ordered by how near their start is to a
+     * location. Page 0 holds the nearest pageSize routes
+     * @param wp as Waypoint
+     * @param page as int
+     * @param pageSize as int
+     * @return routes on page, nearest first
+     */
+    public List<RouteHit> page(Waypoint wp, int page, int pageSize)
+    {
+        List<RouteHit> nearest;
+
+        if (page < 0 || pageSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid page");
+        }
+
+        nearest = nearest(wp, (page + 1) * pageSize);
+        if (nearest.size() <= page * pageSize)
+        {
+            return new ArrayList<RouteHit>();
+        }
+
+        return new ArrayList<RouteHit>(nearest.subList(page * pageSize,
+            nearest.size()));
+    }
+
+    @Override
+    protected RouteHit hit(int line, double distance)
+    {
+        return new RouteHit(names[line], routes[line], distance);
+    }
+}
@@ -0,0 +1,209 @@
+package main.model;
+
+import java.util.List;
+
+/**
+ * The name, description, end points and totals of a route without any of
+ * its segments, along with where the route is found in its source so the
+ * full Route can be built when needed. Used in place of sub-routes while
+ * a lazy catalogue is summarised, so only one route's segments are held
+ * at a time. Once in its RouteCatalogue a summary's segments are those of
+ * the route it stands for, built or taken from the catalogue's cache the
+ * first time they are asked for.
+ *
+ * @author Owen Frere
+ */
+public class RouteSummary extends TrekPart
+{
+    private String name;
+    private String desc;
+    private Waypoint start;
+    private Waypoint end;
+    private double length;
+    private double altIncrease;
+    private double altDecrease;
+    private int segCount;
+    private int offset;
+    private int endOffset;
+    private RouteCatalogue catalogue;
+
+    /**
+     * Constructor, takes the totals of a built route
+     * @param rte as Route
+     * @param offset as int
+     * @param endOffset as int
+     */
+    RouteSummary(Route rte, int offset, int endOffset)
+    {
+        this.name = rte.getName();
+        this.desc = rte.getDesc();
+        this.start = rte.getStart();
+        this.end = rte.getEnd();
+        this.length = rte.getLength();
+        this.altIncrease = rte.getAltIncrease();
+        this.altDecrease = rte.getAltDecrease();
+        this.segCount = rte.getSegmentCount();
+        this.offset = offset;
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * Returns String of route name
+     * @return name of route
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns String describing the route
+     * @return description of route
+     */
+    public String getDesc()
+    {
+        return desc;
+    }
+
+    /**
+     * Returns the Waypoint representing the start of the route
+     * @return start of route
+     */
+    public Waypoint getStart()
+    {
+        return start;
+    }
+
+    /**
+     * Returns the Waypoint representing the end of the route
+     * @return end of route
+     */
+    public Waypoint getEnd()
+    {
+        return end;
+    }
+
+    /**
+     * Returns length of route in metres as a double
+     * @return length of route
+     */
+    public double getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Returns the total of climb of upward segments in the route
+     * @return altitude increases
+     */
+    public double getAltIncrease()
+    {
+        return altIncrease;
+    }
+
+    /**
+     * Returns the total of descent of downward segments in the route
+     * @return altitude decreases
+     */
+    public double getAltDecrease()
+    {
+        return altDecrease;
+    }
+
+    /**
+     * Returns a new List<Segment> of the straight line paths of the route,
+     * building it from the source if its catalogue hasn't cached it
+     * @return list of paths in route
+     * @throws IllegalStateException (unchecked) if the summary is not yet
+     * in a catalogue or the route can no longer be built from its source
+     */
+    public List<Segment> getSegments()
+    {
+        Route rte;
+
+        if (catalogue == null)
+        {
+            throw new IllegalStateException("Route summary not in a "
+                + "catalogue");
+        }
+
+        rte = catalogue.get(name);
+        if (rte == null)
+        {
+            throw new IllegalStateException("Route " + name + " cannot "
+                + "be built from its source");
+        }
+
+        return rte.getSegments();
+    }
+
+    /**
+     * Returns the number of straight line paths in the route
+     * @return count of segments
+     */
+    public int getSegmentCount()
+    {
+        return segCount;
+    }
+
+    /**
+     * Sets the catalogue the summary's route is built by
+     * @param catalogue as RouteCatalogue
+     */
+    void setCatalogue(RouteCatalogue catalogue)
+    {
+        this.catalogue = catalogue;
+    }
+
+    int getOffset()
+    {
+        return offset;
+    }
+
+    int getEndOffset()
+    {
+        return endOffset;
+    }
+
+    /**
+     * Returns a String describing the state of the summary
+     * @return description of object's state
+     */
+    public String toString()
+    {
+        return "Route summary named: " + name + " starting at: " + start +
+            " and ending at: " + end;
+    }
+
+    /**
+     * Checks an object for equality with the summary
+     * @param object as Object
+     * @return boolean equality result
+     */
+    public boolean equals(Object obj)
+    {
+        RouteSummary temp;
+
+        if (obj instanceof RouteSummary)
+        {
+            temp = (RouteSummary)obj;
+            return name.equals(temp.name) && desc.equals(temp.desc) &&
+                start.equals(temp.start) && end.equals(temp.end) &&
+                length == temp.length;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns a hash code consistent with equals
+     * @return hash of name, description and length
+     */
+    public int hashCode()
+    {
+        long bits = Double.doubleToLongBits(length);
+
+        return 31 * (31 * name.hashCode() + desc.hashCode()) +
+            (int)(bits ^ (bits >>> 32));
+    }
+}
@@ -0,0 +1,41 @@
+package main.model;
+
+/**
+* Interface for observers of the RouteTokenizer
+*
+* @author Owen Frere
+*/
+public interface RouteTokenObs
+{
+    /**
+     * Observer method for a route header line being read. The offset is
+     * where the header starts in the source
+     * @param name as String
+     * @param desc as String
+     * @param offset as int
+     */
+    public void routeFound(String name, String desc, int offset);
+
+    /**
+     * Observer method for a data line of the current route being read.
+     * Coordinates are only meaningful if coordsOk is true, desc is null
+     * if the line has no description field
+     * @param lat as double
+     * @param lon as double
+     * @param alt as double
+     * @param coordsOk as boolean
+     * @param desc as String
+     */
+    public void rowFound(double lat, double lon, double alt,
+        boolean coordsOk, String desc);
+
+    /**
+     * Observer method for the last line of the current route being read.
+     * The fingerprint is a hash of every non-blank line of the route,
+     * ignoring leading and trailing whitespace. The end offset is just
+     * after the last non-blank character of the route in the source
+     * @param endOffset as int
+     * @param fingerprint as long
+     */
+    public void routeEnd(int endOffset, long fingerprint);
+}
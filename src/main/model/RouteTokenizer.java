@@ -0,0 +1,284 @@
+package main.model;
+
+/**
+ * Single pass reader for route data. Walks the character data once,
+ * line by line, and notifies its observer of each route header and each
+ * coordinate row as they are found, so no per route strings need to be
+ * built and re-split.
+ *
+ * Route data format:
+ * name description
+ * lat,lon,alt,description
+ * ...
+ * lat,lon,alt
+ *
+ * @author Owen Frere
+ */
+public class RouteTokenizer
+{
+    //64 bit FNV-1a constants
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private RouteTokenObs obs;
+    private RouteSource src;
+    private double[] coords;
+    private long print;
+    private long lines;
+    private int routeEnd;
+
+    /**
+     * Constructor
+     * @param obs as RouteTokenObs
+     */
+    public RouteTokenizer(RouteTokenObs obs)
+    {
+        if (obs == null)
+        {
+            throw new IllegalArgumentException("Null observer");
+        }
+
+        this.obs = obs;
+        this.coords = new double[3];
+    }
+
+    /**
+     * Reads all the route data in the provided source, notifying
+     * the observer of headers and rows in order
+     * @param src as RouteSource
+     */
+    public void tokenize(RouteSource src)
+    {
+        tokenize(src, 0, src.length());
+    }
+
+    /**
+     * Reads the route data in a range of the provided source, notifying
+     * the observer of headers and rows in order. The range should start
+     * at a route header, as given to routeFound, so the routes read are
+     * the same as when the whole source is read
+     * @param src as RouteSource
+     * @param start as int
+     * @param len as int, end of the range
+     */
+    public void tokenize(RouteSource src, int start, int len)
+    {
+        int lineStart = start;
+        int lineEnd;
+        boolean inRoute = false;
+
+        this.src = src;
+        this.lines = 0;
+
+        while (lineStart < len)
+        {
+            lineEnd = lineStart;
+            while (lineEnd < len && src.charAt(lineEnd) != '\n')
+            {
+                lineEnd++;
+            }
+
+            inRoute = readLine(lineStart, lineEnd, inRoute);
+            lineStart = lineEnd + 1;
+            lines++;
+        }
+
+        if (inRoute)
+        {
+            obs.routeEnd(routeEnd, print);
+        }
+        this.src = null;
+    }
+
+    /**
+     * Returns the number of lines, blank or not, read by the last call
+     * to tokenize
+     * @return lines read
+     */
+    public long getLines()
+    {
+        return lines;
+    }
+
+    /**
+     * Reads a single line, ignoring blank lines. The first line read is
+     * always a header, after that a line is a header if it matches
+     * name description
+     * @param start as int
+     * @param end as int
+     * @param inRoute as boolean, has a header been read yet
+     * @return whether a header has been read
+     */
+    private boolean readLine(int start, int end, boolean inRoute)
+    {
+        //trim whitespace from both ends
+        while (start < end && src.charAt(start) <= ' ')
+        {
+            start++;
+        }
+        while (end > start && src.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+
+        if (start < end)
+        {
+            if (!inRoute || isHeader(start, end))
+            {
+                if (inRoute)
+                {
+                    obs.routeEnd(routeEnd, print);
+                }
+                print = FNV_OFFSET;
+                hashLine(start, end);
+                readHeader(start, end);
+                inRoute = true;
+            }
+            else
+            {
+                hashLine(start, end);
+                readRow(start, end);
+            }
+            routeEnd = end;
+        }
+
+        return inRoute;
+    }
+
+    /**
+     * Adds a trimmed line to the fingerprint of the current route
+     * @param start as int
+     * @param end as int
+     */
+    private void hashLine(int start, int end)
+    {
+        for (int ii = start; ii < end; ii++)
+        {
+            print = (print ^ src.charAt(ii)) * FNV_PRIME;
+        }
+        print = (print ^ '\n') * FNV_PRIME;
+    }
+
+    /**
+     * Checks if a trimmed line is a route header, a name of letters,
+     * digits or underscores followed by whitespace and a description
+     * @param start as int
+     * @param end as int
+     * @return is the line a header
+     */
+    private boolean isHeader(int start, int end)
+    {
+        int ii = start;
+
+        while (ii < end && isNameChar(src.charAt(ii)))
+        {
+            ii++;
+        }
+
+        //trimmed line can't end in whitespace so a description follows
+        return ii > start && ii < end && isSpace(src.charAt(ii));
+    }
+
+    /**
+     * Splits a header line into name and description and notifies
+     * @param start as int
+     * @param end as int
+     */
+    private void readHeader(int start, int end)
+    {
+        int nameEnd = start;
+        String desc = "";
+
+        while (nameEnd < end && !isSpace(src.charAt(nameEnd)))
+        {
+            nameEnd++;
+        }
+        if (nameEnd < end)
+        {
+            desc = src.decode(nameEnd + 1, end);
+        }
+
+        obs.routeFound(src.decode(start, nameEnd), desc, start);
+    }
+
+    /**
+     * Splits a data line on its first three commas into coordinates and
+     * description and notifies
+     * @param start as int
+     * @param end as int
+     */
+    private void readRow(int start, int end)
+    {
+        int com1, com2, com3;
+        boolean coordsOk = false;
+        String desc = null;
+
+        com1 = indexOfComma(start, end);
+        com2 = indexOfComma(com1 + 1, end);
+        com3 = indexOfComma(com2 + 1, end);
+
+        if (com1 < end && com2 < end)
+        {
+            coordsOk = parseCoord(0, start, com1) &&
+                parseCoord(1, com1 + 1, com2) &&
+                parseCoord(2, com2 + 1, com3);
+        }
+        if (com3 < end)
+        {
+            desc = src.decode(com3 + 1, end);
+        }
+
+        obs.rowFound(coords[0], coords[1], coords[2], coordsOk, desc);
+    }
+
+    /**
+     * Parses one coordinate field into the coordinate buffer, straight
+     * from the source without building a String
+     * @param idx as int
+     * @param start as int
+     * @param end as int
+     * @return whether the field was a valid number
+     */
+    private boolean parseCoord(int idx, int start, int end)
+    {
+        try
+        {
+            coords[idx] = DecimalParser.parse(src, start, end);
+            return true;
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Returns index of the next comma in range, or end if there is none
+     * @param start as int
+     * @param end as int
+     * @return index of comma
+     */
+    private int indexOfComma(int start, int end)
+    {
+        int ii = start;
+
+        while (ii < end && src.charAt(ii) != ',')
+        {
+            ii++;
+        }
+
+        return ii;
+    }
+
+    private static boolean isNameChar(char c)
+    {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') ||
+            (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isSpace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\f' || c == '\r' ||
+            c == '\u000B';
+    }
+}
@@ -1,6 +1,6 @@
 package main.model;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -12,11 +12,11 @@ import java.util.List;
 */
 public class Segment extends TrekPart
 {
-    private Waypoint start;
-    private Waypoint end;
-    private double length;
-    private double altChange;
-    private String desc;
+    private final Waypoint start;
+    private final Waypoint end;
+    private final double length;
+    private final double altChange;
+    private final String desc;
 
     /**
      * Constructor
@@ -80,12 +80,31 @@ public class Segment extends TrekPart
      */
     public List<Segment> getSegments()
     {
-        LinkedList<Segment> segs = new LinkedList<Segment>();
+        List<Segment> segs = new ArrayList<Segment>(1);
         segs.add(this);
 
         return segs;
     }
 
+    /**
+     * Returns the number of paths the segment is, always 1
+     * @return count of segments
+     */
+    public int getSegmentCount()
+    {
+        return 1;
+    }
+
+    /**
+     * Visits the segment itself
+     * @param visitor as SegmentVisitor
+     */
+    @Override
+    public void forEachSegment(SegmentVisitor visitor)
+    {
+        visitor.visit(this);
+    }
+
     /**
      * Returns String description of path
      * @return description of path
@@ -0,0 +1,66 @@
+package main.model;
+
+/**
+ * A Segment found by a SegmentIndex query, with the route it belongs to
+ * and its distance from the query location
+ *
+ * @author Owen Frere
+ */
+public class SegmentHit
+{
+    private Segment segment;
+    private Route route;
+    private double distance;
+
+    /**
+     * Constructor
+     * @param segment as Segment
+     * @param route as Route
+     * @param distance as double
+     */
+    SegmentHit(Segment segment, Route route, double distance)
+    {
+        this.segment = segment;
+        this.route = route;
+        this.distance = distance;
+    }
+
+    /**
+     * Returns the Segment found
+     * @return segment found
+     */
+    public Segment getSegment()
+    {
+        return segment;
+    }
+
+    /**
+     * Returns the innermost Route the segment is part of. A sub-route's
+     * segments give the sub-route, not the routes using it
+     * @return route of segment
+     */
+    public Route getRoute()
+    {
+        return route;
+    }
+
+    /**
+     * Returns the metres from the query location to the nearest point of
+     * the segment, 0 for bounding box queries
+     * @return distance to segment
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+    /**
+     * Returns a String describing the state of the hit
+     * @return description of object's state
+     */
+    public String toString()
+    {
+        return "Segment of route " + route.getName() + " " + distance +
+            " metres away: " + segment;
+    }
+}
@@ -0,0 +1,123 @@
+package main.model;
+
+import java.util.*;
+
+/**
+ * Spatial index over every Segment of a Map<String, Route>, answering
+ * nearest, radius and bounding box queries without scanning every route.
+ * Each distinct Segment is indexed once, along with the route holding it
+ * directly.
+ *
+ * The index is a snapshot of the routes given to it, build a new one when
+ * the routes are reloaded.
+ *
+ * @author Owen Frere
+ * @throws IllegalArgumentException (unchecked) on invalid query values
+ */
+public class SegmentIndex extends GridIndex<SegmentHit>
+{
+    private Segment[] segs;
+    private Route[] owners;
+
+    /**
+     * Constructor, indexes with the default cell size
+     * @param routes as Map<String, Route>
+     */
+    public SegmentIndex(Map<String, Route> routes)
+    {
+        this(routes, DEFAULT_CELL);
+    }
+
+    /**
+     * Constructor. Smaller cells make short range queries read fewer
+     * segments but place long segments in more cells
+     * @param routes as Map<String, Route>
+     * @param cellDegrees as double, size of grid cells
+     */
+    public SegmentIndex(Map<String, Route> routes, double cellDegrees)
+    {
+        super(cellDegrees);
+
+        List<Segment> segList = new ArrayList<Segment>();
+        List<Route> ownerList = new ArrayList<Route>();
+        double[] coords;
+        Segment seg;
+
+        if (routes == null)
+        {
+            throw new IllegalArgumentException("Null routes");
+        }
+
+        collectSegments(routes.values(), segList, ownerList);
+
+        segs = segList.toArray(new Segment[segList.size()]);
+        owners = ownerList.toArray(new Route[ownerList.size()]);
+        coords = new double[segs.length * 4];
+        for (int ii = 0; ii < segs.length; ii++)
+        {
+            seg = segs[ii];
+            coords[ii * 4] = seg.getStart().getLat();
+            coords[ii * 4 + 1] = seg.getStart().getLon();
+            coords[ii * 4 + 2] = seg.getEnd().getLat();
+            coords[ii * 4 + 3] = seg.getEnd().getLon();
+        }
+
+        index(coords);
+    }
+
+    @Override
+    protected SegmentHit hit(int line, double distance)
+    {
+        return new SegmentHit(segs[line], owners[line], distance);
+    }
+
+    /**
+     * Finds every distinct segment reachable from the routes along with
+     * the route holding it directly. Walks with an explicit stack so
+     * nesting depth is not limited
+     * @param routes as Collection<Route>
+     * @param segList as List<Segment>
+     * @param ownerList as List<Route>
+     */
+    private void collectSegments(Collection<Route> routes,
+        List<Segment> segList, List<Route> ownerList)
+    {
+        Set<Route> seenRoutes;
+        Set<Segment> seenSegs;
+        Deque<Route> stack = new ArrayDeque<Route>();
+        Route rte;
+
+        //Segment equality is by value, identity is wanted here
+        seenRoutes = Collections.newSetFromMap(
+            new IdentityHashMap<Route, Boolean>());
+        seenSegs = Collections.newSetFromMap(
+            new IdentityHashMap<Segment, Boolean>());
+
+        for (Route root : routes)
+        {
+            if (seenRoutes.add(root))
+            {
+                stack.push(root);
+            }
+            while (!stack.isEmpty())
+            {
+                rte = stack.pop();
+                for (TrekPart tp : rte.getParts())
+                {
+                    if (tp instanceof Segment)
+                    {
+                        if (seenSegs.add((Segment)tp))
+                        {
+                            segList.add((Segment)tp);
+                            ownerList.add(rte);
+                        }
+                    }
+                    else if (tp instanceof Route && seenRoutes.add((Route)tp))
+                    {
+                        stack.push((Route)tp);
+                    }
+                }
+            }
+        }
+    }
+}
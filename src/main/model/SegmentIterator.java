@@ -0,0 +1,151 @@
+package main.model;
+
+import java.util.*;
+
+/**
+ * Iterates over the Segments of a TrekPart in order, walking nested
+ * routes in place. Only a stack of the routes entered is kept, so the
+ * cost does not grow with the number of segments and nesting depth is
+ * not limited by the call stack.
+ *
+ * @author Owen Frere
+ */
+class SegmentIterator implements Iterator<Segment>
+{
+    //parts lists of the routes entered and the next part of each
+    private List<?>[] lists;
+    private int[] next;
+    private int depth;
+    private int left;
+    private Segment pending;
+
+    /**
+     * Constructor
+     * @param root as TrekPart
+     * @param skip as int, segments to pass over first
+     * @param count as int, segments to return after them
+     */
+    SegmentIterator(TrekPart root, int skip, int count)
+    {
+        lists = new List<?>[8];
+        next = new int[8];
+        depth = 0;
+        lists[0] = Collections.singletonList(root);
+        left = count;
+        pending = null;
+
+        skip(skip);
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (pending == null && left > 0)
+        {
+            pending = advance();
+        }
+
+        return pending != null;
+    }
+
+    @Override
+    public Segment next()
+    {
+        Segment seg;
+
+        if (!hasNext())
+        {
+            throw new NoSuchElementException("No more segments");
+        }
+
+        seg = pending;
+        pending = null;
+        left--;
+
+        return seg;
+    }
+
+    /**
+     * Returns the next Segment of the walk, null at the end
+     * @return next segment
+     */
+    private Segment advance()
+    {
+        TrekPart tp;
+
+        while (depth >= 0)
+        {
+            if (next[depth] < lists[depth].size())
+            {
+                tp = (TrekPart)lists[depth].get(next[depth]++);
+                if (tp instanceof Segment)
+                {
+                    return (Segment)tp;
+                }
+                push(tp);
+            }
+            else
+            {
+                lists[depth--] = null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Passes over segments without returning them, stepping over whole
+     * sub-routes at a time
+     * @param count as int
+     */
+    private void skip(int count)
+    {
+        TrekPart tp;
+        int segs;
+
+        while (count > 0 && depth >= 0)
+        {
+            if (next[depth] < lists[depth].size())
+            {
+                tp = (TrekPart)lists[depth].get(next[depth]++);
+                segs = tp.getSegmentCount();
+                if (segs <= count)
+                {
+                    count -= segs;
+                }
+                else
+                {
+                    push(tp);
+                }
+            }
+            else
+            {
+                lists[depth--] = null;
+            }
+        }
+    }
+
+    /**
+     * Enters a part made of other parts
+     * @param tp as TrekPart
+     */
+    private void push(TrekPart tp)
+    {
+        depth++;
+        if (depth == lists.length)
+        {
+            lists = Arrays.copyOf(lists, depth * 2);
+            next = Arrays.copyOf(next, depth * 2);
+        }
+
+        if (tp instanceof Route)
+        {
+            lists[depth] = ((Route)tp).getParts();
+        }
+        else
+        {
+            lists[depth] = tp.getSegments();
+        }
+        next[depth] = 0;
+    }
+}
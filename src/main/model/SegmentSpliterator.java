@@ -0,0 +1,111 @@
+package main.model;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over a range of the Segments of a TrekPart, for streams of
+ * segments. A split hands the first half of the range to a new
+ * spliterator, which starts by stepping over whole sub-routes to reach
+ * its first segment, so both halves walk the route in place.
+ *
+ * @author Owen Frere
+ */
+class SegmentSpliterator implements Spliterator<Segment>
+{
+    //ranges smaller than this are not worth splitting
+    private static final int MIN_SPLIT = 64;
+
+    private TrekPart root;
+    private int pos;
+    private int end;
+    private SegmentIterator iter;
+
+    /**
+     * Constructor
+     * @param root as TrekPart
+     * @param start as int, index of first segment
+     * @param end as int, index after last segment
+     */
+    SegmentSpliterator(TrekPart root, int start, int end)
+    {
+        this.root = root;
+        this.pos = start;
+        this.end = end;
+        this.iter = null;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Segment> action)
+    {
+        if (pos >= end)
+        {
+            return false;
+        }
+
+        action.accept(iterator().next());
+        pos++;
+
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Segment> action)
+    {
+        SegmentIterator it;
+
+        if (pos < end)
+        {
+            it = iterator();
+            while (pos < end)
+            {
+                action.accept(it.next());
+                pos++;
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<Segment> trySplit()
+    {
+        int mid = pos + (end - pos) / 2;
+        Spliterator<Segment> prefix;
+
+        if (end - pos < MIN_SPLIT)
+        {
+            return null;
+        }
+
+        prefix = new SegmentSpliterator(root, pos, mid);
+        pos = mid;
+        iter = null;
+
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return end - pos;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Returns the iterator walking the range, positioned on first use
+     * @return iterator at current position
+     */
+    private SegmentIterator iterator()
+    {
+        if (iter == null)
+        {
+            iter = new SegmentIterator(root, pos, end - pos);
+        }
+
+        return iter;
+    }
+}
@@ -0,0 +1,15 @@
+package main.model;
+
+/**
+* Interface for visitors of the Segments of a TrekPart
+* 
+* @author Owen Frere
+*/
+public interface SegmentVisitor
+{
+    /**
+     * visitor method, called for each segment in order
+     * @param seg as Segment
+     */
+    public abstract void visit(Segment seg);
+}
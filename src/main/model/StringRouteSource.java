@@ -0,0 +1,43 @@
+package main.model;
+
+/**
+ * RouteSource backed by character data already held in memory
+ *
+ * @author Owen Frere
+ */
+public class StringRouteSource implements RouteSource
+{
+    private CharSequence src;
+
+    /**
+     * Constructor
+     * @param src as CharSequence
+     */
+    public StringRouteSource(CharSequence src)
+    {
+        if (src == null)
+        {
+            throw new IllegalArgumentException("Null route data");
+        }
+
+        this.src = src;
+    }
+
+    @Override
+    public int length()
+    {
+        return src.length();
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        return src.charAt(index);
+    }
+
+    @Override
+    public String decode(int start, int end)
+    {
+        return src.subSequence(start, end).toString();
+    }
+}
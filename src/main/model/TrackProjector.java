@@ -0,0 +1,235 @@
+package main.model;
+
+/**
+ * Snaps a location onto a CalculatedTrek, finding where along the trek
+ * the trekker is, how far off it they are and how far is left to walk.
+ * The location is compared with the segment being walked and the one
+ * after it, in case the next waypoint was passed without being reached.
+ *
+ * Each projection takes constant time and allocates nothing, the results
+ * are kept in the projector until the next projection so one projector
+ * can be reused for every fix. A projector is used by one thread at a
+ * time, give each reader its own. Distances are measured on a plane through
+ * the location, accurate over the length of a segment.
+ *
+ * @author Owen Frere
+ */
+public class TrackProjector
+{
+    private static final double METRES_PER_DEGREE =
+        6371000.0 * Math.PI / 180;
+
+    private CalculatedTrek snappedTrek;
+    private int snapped;
+    private double alongTrack;
+    private double crossTrack;
+    private double offTrack;
+    private double remaining;
+
+    //projection of the last segment tried
+    private double fraction;
+    private double cross;
+    private double off;
+
+    /**
+     * Constructor
+     */
+    public TrackProjector()
+    {
+        snappedTrek = null;
+        snapped = -1;
+    }
+
+    /**
+     * Projects a location onto a trek at its current progress. Before the
+     * start of the trek is reached the location is compared with the start
+     * instead
+     * @param cTrek as CalculatedTrek
+     * @param lat as double
+     * @param lon as double
+     */
+    public void project(CalculatedTrek cTrek, double lat, double lon)
+    {
+        project(cTrek, cTrek.getProgress(), lat, lon);
+    }
+
+    /**
+     * Projects a location onto a trek at a snapshot of its progress, so
+     * the result agrees with other values read from the same snapshot
+     * @param cTrek as CalculatedTrek
+     * @param progress as TrekProgress
+     * @param lat as double
+     * @param lon as double
+     */
+    public void project(CalculatedTrek cTrek, TrekProgress progress,
+        double lat, double lon)
+    {
+        int current = progress.getCurrentIndex();
+        int next = current + 1;
+        double kx = METRES_PER_DEGREE * Math.cos(Math.toRadians(lat));
+
+        snappedTrek = cTrek;
+        snapped = -1;
+        if (current >= 0)
+        {
+            projectSegment(cTrek, current, lat, lon, kx);
+            keep(cTrek, current, progress.getDistanceLeft());
+        }
+        //next waypoint may have been passed, the trek's distance left
+        //still holds the next segment
+        if (current >= 0 && next < cTrek.getSegmentCount())
+        {
+            projectSegment(cTrek, next, lat, lon, kx);
+            if (off < offTrack)
+            {
+                keep(cTrek, next, progress.getDistanceLeft() -
+                    cTrek.getSegmentLength(next));
+            }
+        }
+
+        if (snapped < 0)
+        {
+            offTrack = distance(progress.getNextWP(), lat, lon, kx);
+            crossTrack = offTrack;
+            alongTrack = 0;
+            remaining = progress.getDistanceLeft() + offTrack;
+        }
+    }
+
+    /**
+     * Returns the segment the last location was snapped to as a new
+     * Segment, null if the trek had not been started
+     * @return segment snapped to
+     */
+    public Segment getSnapped()
+    {
+        if (snapped < 0)
+        {
+            return null;
+        }
+
+        return snappedTrek.getSegment(snapped);
+    }
+
+    /**
+     * Returns the index in the trek of the segment the last location was
+     * snapped to, -1 if the trek had not been started
+     * @return index of segment snapped to
+     */
+    public int getSnappedIndex()
+    {
+        return snapped;
+    }
+
+    /**
+     * Returns the metres walked along the snapped segment
+     * @return along track distance
+     */
+    public double getAlongTrack()
+    {
+        return alongTrack;
+    }
+
+    /**
+     * Returns the metres from the line through the snapped segment,
+     * positive to the left of the direction of travel
+     * @return cross track distance
+     */
+    public double getCrossTrack()
+    {
+        return crossTrack;
+    }
+
+    /**
+     * Returns the metres to the nearest point of the snapped segment, or
+     * to the start of the trek if it had not been started
+     * @return distance off track
+     */
+    public double getOffTrack()
+    {
+        return offTrack;
+    }
+
+    /**
+     * Returns the metres left to walk from the snapped location to the
+     * end of the trek
+     * @return distance remaining
+     */
+    public double getRemaining()
+    {
+        return remaining;
+    }
+
+    /**
+     * Keeps the projection of the last segment tried as the result
+     * @param cTrek as CalculatedTrek
+     * @param seg as int
+     * @param after as double, metres of the trek after the segment
+     */
+    private void keep(CalculatedTrek cTrek, int seg, double after)
+    {
+        double length = cTrek.getSegmentLength(seg);
+
+        snapped = seg;
+        alongTrack = fraction * length;
+        crossTrack = cross;
+        offTrack = off;
+        remaining = after + length - alongTrack;
+    }
+
+    /**
+     * Projects a location onto a segment, on a plane with the location at
+     * its origin
+     * @param cTrek as CalculatedTrek
+     * @param seg as int
+     * @param lat as double
+     * @param lon as double
+     * @param kx as double, metres per degree of longitude at lat
+     */
+    private void projectSegment(CalculatedTrek cTrek, int seg, double lat,
+        double lon, double kx)
+    {
+        double ax = lonDiff(cTrek.getStartLon(seg), lon) * kx;
+        double ay = (cTrek.getStartLat(seg) - lat) * METRES_PER_DEGREE;
+        double dx = lonDiff(cTrek.getEndLon(seg), lon) * kx - ax;
+        double dy = (cTrek.getEndLat(seg) - lat) * METRES_PER_DEGREE - ay;
+        double lenSq = dx * dx + dy * dy;
+        double px, py;
+
+        fraction = 0;
+        cross = 0;
+        if (lenSq > 0)
+        {
+            fraction = Math.max(0, Math.min(1,
+                -(ax * dx + ay * dy) / lenSq));
+            cross = (ax * dy - ay * dx) / Math.sqrt(lenSq);
+        }
+        px = ax + fraction * dx;
+        py = ay + fraction * dy;
+        off = Math.sqrt(px * px + py * py);
+    }
+
+    private double distance(Waypoint wp, double lat, double lon, double kx)
+    {
+        double x = lonDiff(wp.getLon(), lon) * kx;
+        double y = (wp.getLat() - lat) * METRES_PER_DEGREE;
+
+        return Math.sqrt(x * x + y * y);
+    }
+
+    private static double lonDiff(double lon, double from)
+    {
+        double diff = lon - from;
+
+        if (diff > 180)
+        {
+            diff -= 360;
+        }
+        else if (diff < -180)
+        {
+            diff += 360;
+        }
+
+        return diff;
+    }
+}
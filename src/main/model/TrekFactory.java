@@ -1,8 +1,17 @@
 package main.model;
 
+import main.control.DistanceModel;
 import main.control.GeoUtils;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Factory class for the creation of TrekParts. As TrekParts can be
  * recursively loaded into each other the factory finishes all TrekParts
@@ -15,10 +24,35 @@ import java.util.*;
 public class TrekFactory
 {
     private Set<String> invSet;
-    private Map<String, String> strMap;
+    private Map<String, String> invReasons;
+    private Map<String, RouteData> dataMap;
     private Map<String, Route> rteMap;
     private LocationFactory locFac;
     private GeoUtils geoUtil;
+    private boolean parallel;
+    private boolean incremental;
+    private Map<String, String> missingRefs;
+
+    //lazy catalogues keep summaries in place of built routes
+    private int lazyCache;
+    private Map<String, RouteSummary> sumMap;
+
+    //state of the previous load kept for incremental reloads
+    private Map<String, Long> prevPrints;
+    private Map<String, Route> prevRoutes;
+    private Map<String, String> prevMissing;
+    private Map<String, String> prevReasons;
+    private String prevKey;
+    private DistanceModel prevLength;
+    private DistanceModel prevProximity;
+    private int reusedCount;
+    private int rebuiltCount;
+
+    //instrumentation of the current load
+    private LoadReport report;
+    private AtomicInteger builtCount;
+    private AtomicLong segmentNanos;
+    private AtomicLong linkNanos;
 
     /**
      * Constructor
@@ -26,245 +60,777 @@ public class TrekFactory
     public TrekFactory(GeoUtils geoUtil, LocationFactory lFac)
     {
         invSet = new HashSet<String>();
-        strMap = new HashMap<String, String>();
+        dataMap = new HashMap<String, RouteData>();
         rteMap = new HashMap<String, Route>();
         locFac = lFac;
         this.geoUtil = geoUtil;
+        this.parallel = false;
+        this.incremental = false;
+        this.lazyCache = 0;
+        this.sumMap = null;
+        missingRefs = new HashMap<String, String>();
+        invReasons = new HashMap<String, String>();
+        report = new LoadReport();
+        builtCount = new AtomicInteger();
+        segmentNanos = new AtomicLong();
+        linkNanos = new AtomicLong();
+        clearPrevious();
+    }
+
+    /**
+     * Sets whether routes are built on the fork/join pool. The resulting
+     * map and invalid routes are the same either way
+     * @param parallel as boolean
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Sets whether loads reuse the routes of the previous load. Only
+     * routes whose data changed, and routes that reference them directly
+     * or through other routes, are rebuilt. Unchanged routes are the same
+     * Route instances as in the previous map. Every route is rebuilt if
+     * the distance models or limits have changed since the previous load
+     * @param incremental as boolean
+     */
+    public void setIncremental(boolean incremental)
+    {
+        this.incremental = incremental;
+        clearPrevious();
+    }
+
+    /**
+     * Sets whether loads return a lazy RouteCatalogue rather than a map of
+     * built routes. A lazy load keeps only a summary and source offset of
+     * each valid route, routes are built when first looked up and up to
+     * cacheSize of them are kept. Lazy loads are never incremental
+     * @param cacheSize as int, 0 to build every route up front
+     */
+    public void setLazy(int cacheSize)
+    {
+        if (cacheSize < 0)
+        {
+            throw new IllegalArgumentException("Negative cache size");
+        }
+
+        this.lazyCache = cacheSize;
+        clearPrevious();
     }
 
     /**
-     * Converts a string of all Routes from a context into a 
+     * Returns whether loads return a lazy RouteCatalogue
+     * @return is lazy
+     */
+    public boolean isLazy()
+    {
+        return lazyCache > 0;
+    }
+
+    /**
+     * Returns the number of routes reused unchanged by the last load
+     * @return routes reused
+     */
+    public int getReusedCount()
+    {
+        return reusedCount;
+    }
+
+    /**
+     * Returns the number of routes built, or rejected, by the last load
+     * @return routes rebuilt
+     */
+    public int getRebuiltCount()
+    {
+        return rebuiltCount;
+    }
+
+    /**
+     * Returns the report of the last load: phase timings, input size,
+     * route counts and the reason each invalid route was rejected
+     * @return report of last load
+     */
+    public LoadReport getLoadReport()
+    {
+        return report;
+    }
+
+    /**
+     * Converts character data of all Routes from a context into a 
      * Map<String, Route> of routes keyed by their names
-     * @param str as String
+     * @param str as CharSequence
      * @return map of routes
      * @throws TrekPartException
      */
-    public Map<String,Route> mapCreate(String str)
+    public Map<String,Route> mapCreate(CharSequence str)
         throws TrekPartException
     {
         if (str == null)
         {
             throw new TrekPartException("Cannot read route data");
         }
-        loadStrMap(str);
 
-        for (String mapStr : strMap.values()) 
+        return mapCreate(new StringRouteSource(str));
+    }
+
+    /**
+     * Converts a source of all Routes from a context into a 
+     * Map<String, Route> of routes keyed by their names. In lazy mode the
+     * map is a RouteCatalogue reading from the source, which must not
+     * change while the catalogue is in use
+     * @param src as RouteSource
+     * @return map of routes
+     * @throws TrekPartException
+     */
+    public Map<String,Route> mapCreate(RouteSource src)
+        throws TrekPartException
+    {
+        if (src == null)
+        {
+            throw new TrekPartException("Cannot read route data");
+        }
+
+        long splitStart, buildStart, buildEnd;
+        long lines;
+        int rejected = 0;
+        Map<String, Route> result;
+
+        //each load starts from a clean slate
+        dataMap = new HashMap<String, RouteData>();
+        locFac.clearInterned();
+        if (parallel)
         {
-            try
+            invSet = ConcurrentHashMap.newKeySet();
+            invReasons = new ConcurrentHashMap<String, String>();
+            rteMap = new ConcurrentHashMap<String, Route>();
+            missingRefs = new ConcurrentHashMap<String, String>();
+            sumMap = isLazy() ?
+                new ConcurrentHashMap<String, RouteSummary>() : null;
+        }
+        else
+        {
+            invSet = new HashSet<String>();
+            invReasons = new HashMap<String, String>();
+            rteMap = new HashMap<String, Route>();
+            missingRefs = new HashMap<String, String>();
+            sumMap = isLazy() ? new HashMap<String, RouteSummary>() : null;
+        }
+        builtCount = new AtomicInteger();
+        segmentNanos = new AtomicLong();
+        linkNanos = new AtomicLong();
+
+        splitStart = System.nanoTime();
+        lines = loadDataMap(src, 0, src.length());
+
+        buildStart = System.nanoTime();
+        reusedCount = 0;
+        if (incremental && !isLazy())
+        {
+            //stored lengths and accepted links depend on the models
+            if (!sameBuild())
             {
-                createRoute(mapStr);
+                clearPrevious();
             }
-            catch (IllegalArgumentException e)
+            reuseUnchanged();
+        }
+        rebuiltCount = dataMap.size() - reusedCount;
+
+        if (parallel)
+        {
+            buildParallel();
+        }
+        buildSequential();
+        buildEnd = System.nanoTime();
+
+        if (incremental && !isLazy())
+        {
+            prevPrints = new HashMap<String, Long>();
+            for (RouteData data : dataMap.values())
             {
-                /*
-                * Log count/names of bad routes from invSet.
-                * No other error handling here as it occurs in recursive
-                * snap back.
-                */
+                prevPrints.put(data.getName(), data.getFingerprint());
             }
+            prevRoutes = rteMap;
+            prevMissing = missingRefs;
+            prevReasons = invReasons;
+            prevKey = buildKey();
+            prevLength = geoUtil.getLengthModel();
+            prevProximity = geoUtil.getProximityModel();
         }
+
+        for (String name : dataMap.keySet())
+        {
+            if (!isBuilt(name))
+            {
+                rejected++;
+            }
+        }
+        report = new LoadReport();
+        report.setPhaseNanos(buildStart - splitStart, buildEnd - buildStart,
+            segmentNanos.get(), linkNanos.get());
+        report.setInput(src.length(), lines);
+        report.setRoutes(builtCount.get(), rejected, reusedCount);
+        report.setRejections(invReasons);
+        LoadCounters.getInstance().record(report);
+
+        result = rteMap;
+        if (isLazy())
+        {
+            result = new RouteCatalogue(src, sumMap,
+                new TrekFactory(geoUtil, locFac), lazyCache);
+            sumMap = null;
+        }
+
+        //shared points are only looked up while a load builds routes
+        dataMap = new HashMap<String, RouteData>();
+        locFac.clearInterned();
+        return result;
+    }
+
+    /**
+     * Builds a single route of a lazy catalogue along with any of its
+     * sub-routes not already built. Only the source ranges of the routes
+     * needed are read again
+     * @param src as RouteSource
+     * @param summaries as Map<String, RouteSummary>, valid routes
+     * @param cached as Map<String, Route>, routes already built
+     * @param name as String
+     * @return routes used by the route, and the route itself
+     */
+    Map<String, Route> buildRoute(RouteSource src,
+        Map<String, RouteSummary> summaries, Map<String, Route> cached,
+        String name)
+    {
+        Deque<String> todo = new ArrayDeque<String>();
+        RouteSummary summary;
+        Route rte;
+        String next;
+
+        dataMap = new HashMap<String, RouteData>();
+        rteMap = new HashMap<String, Route>();
+        invSet = new HashSet<String>();
+        invReasons = new HashMap<String, String>();
+        missingRefs = new HashMap<String, String>();
+        sumMap = null;
+
+        //read the route and everything it uses that isn't built yet
+        todo.push(name);
+        while (!todo.isEmpty())
+        {
+            next = todo.pop();
+            rte = cached.get(next);
+            summary = summaries.get(next);
+            if (rte != null)
+            {
+                rteMap.put(next, rte);
+            }
+            else if (summary != null && !dataMap.containsKey(next))
+            {
+                loadDataMap(src, summary.getOffset(),
+                    summary.getEndOffset());
+                for (String sub : dataMap.get(next).getSubRoutes())
+                {
+                    todo.push(sub);
+                }
+            }
+        }
+
+        if (dataMap.containsKey(name))
+        {
+            createRoute(dataMap.get(name));
+        }
+        dataMap = new HashMap<String, RouteData>();
+        locFac.clearInterned();
+
         return rteMap;
     }
 
     /**
-     * Converts route data String into a Map<String, String> of component
-     * route Strings keyed by the route names
-     * @param str as String
+     * Carries routes over from the previous load. A route is dirty if its
+     * fingerprint changed, it is new, or it references a dirty or removed
+     * route. Every other route is taken from the previous load as it was,
+     * built or invalid, and counted as reused.
      */
-    private void loadStrMap(String str)
+    private void reuseUnchanged()
     {
-        int nameEnd = 0;
-        int ii = 0;
-        String strName = null;
-        String strData = null;
-        String[] srcArr = str.split("\n");
-    
-        //while exists new lines
-        while (ii < srcArr.length)
+        Map<String, List<String>> parents;
+        Deque<String> changed = new ArrayDeque<String>();
+        Set<String> dirty = new HashSet<String>();
+        List<String> refParents;
+        Long print;
+        Route rte;
+        String missing;
+
+        parents = new HashMap<String, List<String>>();
+
+        for (RouteData data : dataMap.values())
         {
-            srcArr[ii] = srcArr[ii].trim();
-            //if trimmed string isn't empty
-            if (srcArr[ii].length() > 0)
+            for (String sub : data.getSubRoutes())
             {
-                //if name is not set
-                if (strName == null)
+                refParents = parents.get(sub);
+                if (refParents == null)
                 {
-                    //extract name and seperate out description
-                    nameEnd = srcArr[ii].indexOf(' ');
-                    strName = srcArr[ii].substring(0,nameEnd);
-                    strData = strName + "\n";
-                    if (0 < nameEnd)
+                    refParents = new ArrayList<String>();
+                    parents.put(sub, refParents);
+                }
+                refParents.add(data.getName());
+            }
+
+            print = prevPrints.get(data.getName());
+            if (print == null || print != data.getFingerprint())
+            {
+                dirty.add(data.getName());
+                changed.push(data.getName());
+            }
+        }
+        for (String name : prevPrints.keySet())
+        {
+            if (!dataMap.containsKey(name))
+            {
+                changed.push(name);
+            }
+        }
+
+        //everything referencing a change, directly or not, is dirty
+        while (!changed.isEmpty())
+        {
+            refParents = parents.get(changed.pop());
+            if (refParents != null)
+            {
+                for (String parent : refParents)
+                {
+                    if (dirty.add(parent))
                     {
-                        strData = strData + srcArr[ii].substring(
-                            nameEnd+1, srcArr[ii].length()) + "\n";
+                        changed.push(parent);
                     }
-                    ii++;
                 }
-                //if next line is a valid name
-                else if (srcArr[ii].matches("^[A-Za-z0-9_]+\\s.+"))
+            }
+        }
+
+        for (RouteData data : dataMap.values())
+        {
+            if (!dirty.contains(data.getName()))
+            {
+                rte = prevRoutes.get(data.getName());
+                if (rte != null)
                 {
-                    //end string and insert to map
-                    strMap.put(strName, strData);
-                    strName = null;
-                    strData = new String();
+                    rteMap.put(data.getName(), rte);
                 }
-                //line is a data line
                 else
                 {
-                    strData = strData + srcArr[ii] + "\n";
-                    ii++;
+                    reject(data.getName(), prevReasons.get(data.getName()));
+                    //the same walk fails on the same missing route
+                    missing = prevMissing.get(data.getName());
+                    if (missing != null)
+                    {
+                        reject(missing, prevReasons.get(missing));
+                        missingRefs.put(data.getName(), missing);
+                    }
                 }
+                reusedCount++;
             }
         }
+    }
 
-        //add final string to map
-        if (strName.length() > 0 && strData.length() > 0)
+    /**
+     * Forgets the previous load so the next load builds every route
+     */
+    private void clearPrevious()
+    {
+        prevPrints = new HashMap<String, Long>();
+        prevRoutes = new HashMap<String, Route>();
+        prevMissing = new HashMap<String, String>();
+        prevReasons = new HashMap<String, String>();
+        prevKey = null;
+        prevLength = null;
+        prevProximity = null;
+    }
+
+    /**
+     * Checks the previous load was built with the same distance models,
+     * the same instances as a model's settings are its own, and limits
+     * @return are routes of the previous load built the same way
+     */
+    private boolean sameBuild()
+    {
+        return prevLength == geoUtil.getLengthModel() &&
+            prevProximity == geoUtil.getProximityModel() &&
+            buildKey().equals(prevKey);
+    }
+
+    /**
+     * Adds a route name to invSet with the reason it was rejected. The
+     * first reason given for a name is kept
+     * @param name as String
+     * @param reason as String
+     */
+    private void reject(String name, String reason)
+    {
+        invSet.add(name);
+        if (reason != null)
         {
-            strMap.put(strName, strData);
+            invReasons.putIfAbsent(name, reason);
         }
     }
 
     /**
-     * Converts a route String to its representative Route and inserts
-     * into the Map<String, Route>.
-     * @param str as String
+     * Builds every route not already built or known to be invalid, one at
+     * a time, building sub-routes on demand
      */
-    private void createRoute(String str)
+    private void buildSequential()
     {
-        List<TrekPart> tParts;
-        TrekPart tp;
-        Route rte;
-        String[] arrParts = str.split("\n");
+        for (RouteData data : dataMap.values()) 
+        {
+            //bad routes are recorded with their reason as they are found
+            createRoute(data);
+        }
+    }
+
+    /**
+     * Builds routes on the fork/join pool in dependency order. The
+     * *name references of each route form a DAG, a route is built as soon
+     * as the last of its own sub-routes is finished. Routes on or above
+     * a reference cycle are never ready and are left to the sequential
+     * build so they are handled exactly as they would be there.
+     */
+    private void buildParallel()
+    {
+        Map<String, List<RouteData>> parents;
+        Map<String, AtomicInteger> pending;
+        List<RouteData> ready = new ArrayList<RouteData>();
+        Set<String> deps;
+        List<RouteData> depParents;
+
+        parents = new HashMap<String, List<RouteData>>();
+        pending = new HashMap<String, AtomicInteger>();
 
-        //if route is too short or is a known bad actor add to invSet
-        if (arrParts.length < 4 || invSet.contains(arrParts[0]))
+        for (RouteData data : dataMap.values())
         {
-            invSet.add(arrParts[0]);
+            deps = data.getSubRoutes();
+            deps.retainAll(dataMap.keySet());
+
+            for (String dep : deps)
+            {
+                depParents = parents.get(dep);
+                if (depParents == null)
+                {
+                    depParents = new ArrayList<RouteData>();
+                    parents.put(dep, depParents);
+                }
+                depParents.add(data);
+            }
+
+            pending.put(data.getName(), new AtomicInteger(deps.size()));
+            if (deps.size() == 0)
+            {
+                ready.add(data);
+            }
         }
-        else
+
+        ForkJoinPool.commonPool().invoke(
+            new BuildTask(null, ready, parents, pending));
+    }
+
+    /**
+     * Reads route data in a single pass into a Map<String, RouteData> of
+     * tokenized routes keyed by the route names
+     * @param src as RouteSource
+     * @param start as int
+     * @param end as int
+     * @return number of lines read
+     */
+    private long loadDataMap(RouteSource src, int start, int end)
+    {
+        RouteTokenizer tokenizer = new RouteTokenizer(new RouteTokenObs()
+        {
+            private RouteData curr;
+
+            public void routeFound(String name, String desc, int offset)
+            {
+                curr = new RouteData(name, desc, offset);
+                dataMap.put(name, curr);
+            }
+
+            public void rowFound(double lat, double lon, double alt,
+                boolean coordsOk, String desc)
+            {
+                curr.addRow(lat, lon, alt, coordsOk, desc);
+            }
+
+            public void routeEnd(int endOffset, long fingerprint)
+            {
+                curr.setEndOffset(endOffset);
+                curr.setFingerprint(fingerprint);
+            }
+        });
+
+        tokenizer.tokenize(src, start, end);
+        return tokenizer.getLines();
+    }
+
+    /**
+     * Converts tokenized route data to its representative Route and 
+     * inserts into the Map<String, Route>. Sub-routes are resolved with an
+     * explicit stack of partly built routes rather than by recursion, so
+     * nesting depth is only limited by memory. A route referencing a route
+     * still on the stack closes a cycle, every route of the cycle is added
+     * to invSet with the cycle as its reason.
+     * @param data as RouteData
+     */
+    private void createRoute(RouteData data)
+    {
+        Deque<BuildFrame> stack = new ArrayDeque<BuildFrame>();
+        Set<String> visiting = new HashSet<String>();
+        BuildFrame frame;
+        RouteData subData;
+        TrekPart tp;
+
+        pushRoute(data, stack, visiting);
+
+        while (!stack.isEmpty())
         {
-            try 
+            frame = stack.peek();
+            try
             {
-                tParts = new LinkedList<TrekPart>();
-                //convert data lines to TrekParts
-                for (int ii = 2; ii < arrParts.length - 1; ii++)
+                //convert data rows to TrekParts
+                if (frame.row < frame.data.getRows() - 1)
                 {
-                    tp = createTP(arrParts[ii], arrParts[ii+1]);
-                    if (tParts.size() > 0)
+                    subData = unbuiltSubRoute(frame.data, frame.row,
+                        visiting);
+                    //sub-route must be finished before this row is used
+                    if (subData != null)
                     {
-                        if (!validateLink(tParts.get(tParts.size()-1), tp))
+                        pushRoute(subData, stack, visiting);
+                    }
+                    else
+                    {
+                        tp = createTP(frame, stack, visiting);
+                        if (frame.parts.size() > 0)
                         {
-                            throw new IllegalArgumentException("TrekParts" +
-                                "too far apart");
+                            if (!validateLink(frame.parts.get(
+                                frame.parts.size()-1), tp))
+                            {
+                                throw new IllegalArgumentException(
+                                    "TrekParts too far apart");
+                            }
                         }
+                        frame.parts.add(tp);
+                        frame.row++;
                     }
-                    tParts.add(tp);
-                } 
-                
-                rte = new Route(arrParts[0], arrParts[1], tParts);
-                rteMap.put(arrParts[0], rte);
-            } 
-            catch (IllegalArgumentException | IndexOutOfBoundsException e) 
+                }
+                else
+                {
+                    finishRoute(frame.data, new Route(frame.data.getName(),
+                        frame.data.getDesc(), frame.parts));
+                    builtCount.incrementAndGet();
+                    popRoute(stack, visiting);
+                }
+            }
+            catch (IllegalArgumentException e)
             {
-                invSet.add(arrParts[0]);
+                reject(frame.data.getName(), e.getMessage());
+                popRoute(stack, visiting);
             }
         }
     }
 
     /**
-     * Creates a TrekPart from 2 data lines from route string
-     * @param start as String
-     * @param end as String
+     * Records a built route. When summarising, only the summary is kept
+     * and the route's segments are left to be collected
+     * @param data as RouteData
+     * @param rte as Route
+     */
+    private void finishRoute(RouteData data, Route rte)
+    {
+        if (sumMap != null)
+        {
+            sumMap.put(data.getName(), new RouteSummary(rte,
+                data.getOffset(), data.getEndOffset()));
+        }
+        else
+        {
+            rteMap.put(data.getName(), rte);
+        }
+    }
+
+    /**
+     * Checks if a route has been built, or summarised
+     * @param name as String
+     * @return is route built
+     */
+    private boolean isBuilt(String name)
+    {
+        return sumMap != null ? sumMap.containsKey(name) :
+            rteMap.containsKey(name);
+    }
+
+    /**
+     * Returns a built route, or its summary when summarising
+     * @param name as String
+     * @return built route
+     */
+    private TrekPart getBuilt(String name)
+    {
+        return sumMap != null ? sumMap.get(name) : rteMap.get(name);
+    }
+
+    /**
+     * Pushes a route onto the build stack unless it is already built or
+     * can be rejected without building
+     * @param data as RouteData
+     * @param stack as Deque<BuildFrame>
+     * @param visiting as Set<String>
+     */
+    private void pushRoute(RouteData data, Deque<BuildFrame> stack,
+        Set<String> visiting)
+    {
+        String name = data.getName();
+
+        //if route is too short add to invSet
+        if (data.getRows() < 2)
+        {
+            reject(name, "Route has fewer than two data rows");
+        }
+        //if route is not already built or a known bad actor
+        else if (!isBuilt(name) && !invSet.contains(name))
+        {
+            stack.push(new BuildFrame(data));
+            visiting.add(name);
+        }
+    }
+
+    /**
+     * Pops the finished route from the top of the build stack
+     * @param stack as Deque<BuildFrame>
+     * @param visiting as Set<String>
+     */
+    private void popRoute(Deque<BuildFrame> stack, Set<String> visiting)
+    {
+        visiting.remove(stack.pop().data.getName());
+    }
+
+    /**
+     * Returns the data of the sub-route a row refers to if that route
+     * still needs building, otherwise null
+     * @param data as RouteData
+     * @param row as int
+     * @param visiting as Set<String>
+     * @return data of unbuilt sub-route
+     */
+    private RouteData unbuiltSubRoute(RouteData data, int row,
+        Set<String> visiting)
+    {
+        String rteName = data.getSubRoute(row);
+
+        if (rteName == null || isBuilt(rteName) ||
+            invSet.contains(rteName) || visiting.contains(rteName))
+        {
+            return null;
+        }
+
+        return dataMap.get(rteName);
+    }
+
+    /**
+     * Creates a TrekPart from the current data row of a partly built route
+     * and the row following it. Any sub-route referenced must already be
+     * built or rejected
+     * @param frame as BuildFrame
+     * @param stack as Deque<BuildFrame>
+     * @param visiting as Set<String>
      * @return completed trekpart
      */
-    private TrekPart createTP(String start, String end)
+    private TrekPart createTP(BuildFrame frame, Deque<BuildFrame> stack,
+        Set<String> visiting)
     {
-        String rteName, rteData;
-        
-        /*
-        * Can't split start on , in case there are ,s in the
-        * description/name. Doesn't matter for end as not extracting
-        * the description/name
-        */
-        String[] startParts = extractCoords(start);
-        String[] endParts = end.split(",");
+        RouteData data = frame.data;
+        int row = frame.row;
+        String rteName = data.getSubRoute(row);
+        String desc = data.getRowDesc(row);
 
         //if start doesn't match at least lat,lon,alt,desc
-        if (startParts.length < 4)
+        if (desc == null || desc.length() == 0)
         {
-            throw new IllegalArgumentException("Route too short");
+            throw new IllegalArgumentException("Data row has no "
+                + "description");
         }
 
         //if start line descibes a route
-        if (startParts[3].charAt(0) == '*')
+        if (rteName != null)
         {
-            rteName = startParts[3].substring(1,startParts[3].length());
             //if route is known
-            if (rteMap.containsKey(rteName))
+            if (isBuilt(rteName))
             {
-                return rteMap.get(rteName);
+                return getBuilt(rteName);
             }
             //if route is known bad actor
-            else if(invSet.contains(rteName))
+            else if (invSet.contains(rteName))
             {
                 throw new IllegalArgumentException("Route uses invalid "
-                    + "subroute data");
+                    + "subroute " + rteName);
+            }
+            //if route is still being built it contains itself
+            else if (visiting.contains(rteName))
+            {
+                throw new IllegalArgumentException(rejectCycle(stack,
+                    rteName));
             }
-            //if route is not known
+            //if data for unkown route does not exist
             else
             {
-                rteData = strMap.get(rteName);
-                //if data for unkown route exists
-                if (rteData != null)
-                {
-                    createRoute(strMap.get(rteName));
-                    return rteMap.get(rteName);
-                }
-                //if data for unkown route does not exist
-                else
-                {
-                    invSet.add(rteName);
-                }
+                reject(rteName, "No data for referenced route");
+                missingRefs.put(data.getName(), rteName);
+                throw new IllegalArgumentException("Route uses missing "
+                    + "subroute " + rteName);
             }
         }
         //it describes a segment
-        else
+        else if (data.coordsOk(row) && data.coordsOk(row + 1))
         {
-            try
-            {
-                return createSegment(startParts, endParts);
-            }
-            catch(NullPointerException e)
-            {
-                throw new IllegalArgumentException("Invalid gps " + 
-                    "coordinates");
-            }
+            return createSegment(frame);
         }
         //captures things that don't meet above criteria, therefore invalid
-        throw new IllegalArgumentException("Invalid TrekPart Data");
+        else
+        {
+            throw new IllegalArgumentException("Invalid gps coordinates");
+        }
     }
 
     /**
-     * Extracts the coordinates and description from a string
-     * matching the pattern lat,lon,alt,string
-     * @param str as String
-     * @return array of components
+     * Rejects every route of the cycle closed by the route on top of the
+     * build stack referencing a route further down it
+     * @param stack as Deque<BuildFrame>
+     * @param rteName as String, route referenced
+     * @return reason given, naming the routes of the cycle in order
      */
-    private String[] extractCoords(String str)
+    private String rejectCycle(Deque<BuildFrame> stack, String rteName)
     {
-        int com1, com2, com3;
-        String[] strRet = new String[4];
+        List<String> cycle = new ArrayList<String>();
+        StringBuilder reason = new StringBuilder("Route is part of a cycle ");
+        String name;
 
-        com1 = str.indexOf(',');
-        com2 = str.indexOf(',', com1+1);
-        com3 = str.indexOf(',', com2+1);
-       
-        strRet[0] = str.substring(0,com1);
-        strRet[1] = str.substring(com1+1,com2);
-        strRet[2] = str.substring(com2+1,com3);
-        strRet[3] = str.substring(com3+1,str.length());
+        //stack iterates from the top, the route referencing rteName
+        for (BuildFrame frame : stack)
+        {
+            name = frame.data.getName();
+            cycle.add(0, name);
+            if (name.equals(rteName))
+            {
+                break;
+            }
+        }
+
+        for (String member : cycle)
+        {
+            reason.append(member).append(" -> ");
+        }
+        reason.append(rteName);
+        for (String member : cycle)
+        {
+            reject(member, reason.toString());
+        }
 
-        return strRet;
+        return reason.toString();
     }
 
     /**
@@ -280,28 +846,134 @@ public class TrekFactory
     }
 
     /**
-     * Creates a Segment from the provided data
-     * @param start as String[]
-     * @param end as String[]
+     * Writes a Map<String, Route> to a binary snapshot file that can be
+     * reloaded with loadSnapshot without parsing, for a source that is
+     * never checked
+     * @param routes as Map<String, Route>
+     * @param file as Path
+     * @throws IOException if writing fails
+     */
+    public void writeSnapshot(Map<String, Route> routes, Path file)
+        throws IOException
+    {
+        writeSnapshot(routes, file, 0L);
+    }
+
+    /**
+     * Writes a Map<String, Route> to a binary snapshot file that can be
+     * reloaded with loadSnapshot without parsing. The snapshot records
+     * the stamp of the source and the distance models and limits the
+     * routes were built with
+     * @param routes as Map<String, Route>
+     * @param file as Path
+     * @param sourceStamp as long, see GeoUtils.getRouteSourceStamp
+     * @throws IOException if writing fails
+     */
+    public void writeSnapshot(Map<String, Route> routes, Path file,
+        long sourceStamp)
+        throws IOException
+    {
+        new RouteSnapshot(locFac).write(routes, file, sourceStamp,
+            buildKey());
+    }
+
+    /**
+     * Loads a Map<String, Route> from a binary snapshot file written by
+     * writeSnapshot without a source stamp
+     * @param file as Path
+     * @return map of routes
+     * @throws IOException if reading fails or the snapshot is invalid
+     */
+    public Map<String, Route> loadSnapshot(Path file)
+        throws IOException
+    {
+        return loadSnapshot(file, 0L);
+    }
+
+    /**
+     * Loads a Map<String, Route> from a binary snapshot file written by
+     * writeSnapshot. Segment lengths are read, not recalculated, so a
+     * snapshot of another source stamp or built with other distance
+     * models or limits is refused
+     * @param file as Path
+     * @param sourceStamp as long, see GeoUtils.getRouteSourceStamp
+     * @return map of routes
+     * @throws IOException if reading fails or the snapshot is invalid or
+     * stale
+     */
+    public Map<String, Route> loadSnapshot(Path file, long sourceStamp)
+        throws IOException
+    {
+        locFac.clearInterned();
+        try
+        {
+            return new RouteSnapshot(locFac).read(file, sourceStamp,
+                buildKey());
+        }
+        finally
+        {
+            locFac.clearInterned();
+        }
+    }
+
+    /**
+     * Creates a Segment from the current data row of a partly built route
+     * to the row following it. Rows are parsed once by the tokenizer and
+     * a row ending one segment gives the same Waypoint to the next
+     * @param frame as BuildFrame
      * @return constructed segment
      */
-    private Segment createSegment(String[] start, String[] end)
+    private Segment createSegment(BuildFrame frame)
     {
         double lat1, lat2, lon1, lon2, alt1, alt2, dist;
         Waypoint startWP, endWP;
+        Segment seg;
+        RouteData data = frame.data;
+        int start = frame.row;
+        int end = frame.row + 1;
+        long startTime = System.nanoTime();
                 
-        lat1 = Double.parseDouble(start[0]);
-        lon1 = Double.parseDouble(start[1]);
-        alt1 = Double.parseDouble(start[2]);
-        lat2 = Double.parseDouble(end[0]);
-        lon2 = Double.parseDouble(end[1]);
-        alt2 = Double.parseDouble(end[2]);    
+        lat1 = data.getLat(start);
+        lon1 = data.getLon(start);
+        alt1 = data.getAlt(start);
+        lat2 = data.getLat(end);
+        lon2 = data.getLon(end);
+        alt2 = data.getAlt(end);    
     
-        startWP = locFac.create(lat1, lon1, alt1);
-        endWP = locFac.create(lat2, lon2, alt2);
+        if (frame.endRow == start)
+        {
+            startWP = frame.endWP;
+        }
+        else
+        {
+            startWP = locFac.intern(lat1, lon1, alt1);
+        }
+        endWP = locFac.intern(lat2, lon2, alt2);
         dist = geoUtil.calcMetresDistance(lat1, lon1, lat2, lon2);
 
-        return new Segment(startWP, endWP, dist, alt2 - alt1, start[3]);
+        frame.endWP = endWP;
+        frame.endRow = end;
+
+        seg = new Segment(startWP, endWP, dist, alt2 - alt1,
+            data.getRowDesc(start));
+        segmentNanos.addAndGet(System.nanoTime() - startTime);
+
+        return seg;
+    }
+
+    /**
+     * Returns a key of the distance models and limits routes are built
+     * with, routes built under another key may have other lengths or
+     * other links accepted
+     * @return build key
+     */
+    private String buildKey()
+    {
+        Settings settings = Settings.getInstance();
+
+        return geoUtil.getLengthModel().getClass().getName() + " " +
+            geoUtil.getProximityModel().getClass().getName() + " " +
+            settings.getHLimit() + " " + settings.getVLimit();
     }
 
     private boolean validateLink(TrekPart tp1, TrekPart tp2)
@@ -309,17 +981,122 @@ public class TrekFactory
         Settings settings = Settings.getInstance();
         Waypoint wp1 = tp1.getEnd();
         Waypoint wp2 = tp2.getStart();
+        boolean valid = false;
+        long startTime = System.nanoTime();
 
         if (Math.abs(wp1.getAlt() - wp2.getAlt()) < settings.getVLimit())
         {
-            if (settings.getHLimit() > geoUtil.calcMetresDistance(
-                wp1.getLat(), wp2.getLon(),
-                wp2.getLat(), wp2.getLon()))
+            if (geoUtil.isWithin(wp1.getGPSLoc(), wp2.getGPSLoc(),
+                settings.getHLimit()))
+            {
+                valid = true;
+            }
+        }
+        linkNanos.addAndGet(System.nanoTime() - startTime);
+
+        return valid;
+    }
+
+    /**
+     * Fork/join task building one route, then forking a task for each
+     * parent route it was the last unfinished sub-route of. The root task
+     * forks the routes that have no sub-routes.
+     */
+    private class BuildTask extends CountedCompleter<Void>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private List<RouteData> routes;
+        private Map<String, List<RouteData>> parents;
+        private Map<String, AtomicInteger> pending;
+
+        /**
+         * Constructor
+         * @param caller as CountedCompleter, null for the root task
+         * @param routes as List<RouteData>
+         * @param parents as Map<String, List<RouteData>>
+         * @param pending as Map<String, AtomicInteger>
+         */
+        BuildTask(CountedCompleter<?> caller, List<RouteData> routes,
+            Map<String, List<RouteData>> parents,
+            Map<String, AtomicInteger> pending)
+        {
+            super(caller);
+            this.routes = routes;
+            this.parents = parents;
+            this.pending = pending;
+        }
+
+        @Override
+        public void compute()
+        {
+            List<RouteData> rteParents;
+
+            if (getCompleter() == null)
+            {
+                for (RouteData data : routes)
+                {
+                    schedule(data);
+                }
+            }
+            else
             {
-                return true;
+                createRoute(routes.get(0));
+
+                rteParents = parents.get(routes.get(0).getName());
+                if (rteParents != null)
+                {
+                    for (RouteData parent : rteParents)
+                    {
+                        //last finished sub-route schedules the parent
+                        if (pending.get(parent.getName())
+                            .decrementAndGet() == 0)
+                        {
+                            schedule(parent);
+                        }
+                    }
+                }
             }
+            tryComplete();
+        }
+
+        /**
+         * Forks a task to build a single route
+         * @param data as RouteData
+         */
+        private void schedule(RouteData data)
+        {
+            addToPendingCount(1);
+            new BuildTask(this, Collections.singletonList(data), parents,
+                pending).fork();
+        }
+    }
+
+    /**
+     * A partly built route on the build stack, with the TrekParts made so
+     * far, the next data row to convert and the Waypoint made for the end
+     * of the last segment
+     */
+    private static class BuildFrame
+    {
+        private RouteData data;
+        private List<TrekPart> parts;
+        private int row;
+        private Waypoint endWP;
+        private int endRow;
+
+        /**
+         * Constructor
+         * @param data as RouteData
+         */
+        BuildFrame(RouteData data)
+        {
+            this.data = data;
+            this.parts = new ArrayList<TrekPart>();
+            this.row = 0;
+            this.endWP = null;
+            this.endRow = -1;
         }
-        return false;
     }
 }
 
@@ -1,30 +1,62 @@
 package main.model;
 
-import java.util.HashSet;
-import java.util.Set;
-
 /**
  * Stub of template class that connects to gps hardware for location
  * updates. Hook method converted into an observer pattern to allow
  * additional parts of program to observer gps updates.
- * 
+ *
+ * Each observer is fed from its own FixBuffer on its own thread, so the
+ * hardware's one receiving thread only copies the fix into each buffer
+ * and a slow observer holds up no one but itself. What happens when an
+ * observer falls a full buffer behind is set by the OverflowPolicy.
+ * A BatchLocatorObs is handed every fix waiting for it in one call, so
+ * its work can be bounded however fast fixes arrive. An observer may be
+ * given a FilterChain of its own to smooth or reject fixes first.
+ * A fix an observer rejects as invalid is skipped, any other exception
+ * it throws is counted and the observer kept running.
+ * Observers are held in an array replaced whenever one is added or
+ * removed, so they can change while fixes are being received.
+ *
  * @author Owen Frere
  */
 public class TrekLocator extends GpsLocator
 {
-    private Set<LocatorObs> obs;
-    
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private volatile Feed[] feeds;
+    private OverflowPolicy policy;
+    private int capacity;
+
     /**
-     * Constructor
+     * Constructor, dropping the oldest fixes for a lagging observer
      */
     public TrekLocator()
     {
-        this.obs = new HashSet<LocatorObs>();
+        this(OverflowPolicy.DROP_OLDEST, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     * @param policy as OverflowPolicy
+     * @param capacity as int, fixes buffered for each observer
+     * @throws IllegalArgumentException (unchecked) if capacity is below 2
+     * or policy is missing
+     */
+    public TrekLocator(OverflowPolicy policy, int capacity)
+    {
+        if (capacity < 2 || policy == null)
+        {
+            throw new IllegalArgumentException("Invalid locator buffer");
+        }
+
+        this.feeds = new Feed[0];
+        this.policy = policy;
+        this.capacity = capacity;
     }
 
     /**
-     * Notifies its observers and provides lat,lon,alt when gps hardware
-     * recieves location
+     * Passes lat,lon,alt to its observers when gps hardware recieves a
+     * location, timed as it arrives
      * @param latitude as double
      * @param longitude as double
      * @param altitude as double
@@ -33,27 +65,226 @@ public class TrekLocator extends GpsLocator
     protected void locationReceived(double latitude,
         double longitude, double altitude)
     {
-        for (LocatorObs o : obs)
+        locationReceived(latitude, longitude, altitude,
+            System.currentTimeMillis());
+    }
+
+    /**
+     * Passes lat,lon,alt to its observers when gps hardware recieves a
+     * location with the time it was fixed
+     * @param latitude as double
+     * @param longitude as double
+     * @param altitude as double
+     * @param millis as long, time of fix
+     */
+    protected void locationReceived(double latitude,
+        double longitude, double altitude, long millis)
+    {
+        Feed[] current = feeds;
+
+        for (int ii = 0; ii < current.length; ii++)
         {
-            o.gpsChanged(latitude, longitude, altitude);
+            current[ii].buffer.offer(latitude, longitude, altitude, millis);
         }
     }
 
     /**
-     * Registers an observer to be notified when location received
+     * Registers an observer to be notified when location received,
+     * starting its thread. Registering an observer twice has no effect
      * @param observer as LocatorObs
      */
     public void registerObs(LocatorObs observer)
     {
-        obs.add(observer);
+        registerObs(observer, null);
+    }
+
+    /**
+     * Registers an observer to be notified of the fixes that pass a chain
+     * of filters, starting its thread. The chain is used for this observer
+     * alone. Registering an observer twice has no effect
+     * @param observer as LocatorObs
+     * @param filters as FilterChain, null for every fix
+     */
+    public synchronized void registerObs(LocatorObs observer,
+        FilterChain filters)
+    {
+        Feed[] current = feeds;
+        Feed[] added;
+        Feed feed;
+
+        if (indexOf(current, observer) >= 0)
+        {
+            return;
+        }
+
+        feed = new Feed(observer, new FixBuffer(capacity, policy), filters);
+        added = new Feed[current.length + 1];
+        System.arraycopy(current, 0, added, 0, current.length);
+        added[current.length] = feed;
+        feeds = added;
+        feed.thread.start();
+    }
+
+    /**
+     * Removes an observer to be notified when location received. Its
+     * thread stops after any fix it is handling, unread fixes are
+     * discarded. Safe to call from the observer itself
+     * @param observer as LocatorObs
+     */
+    public synchronized void removeObs(LocatorObs observer)
+    {
+        Feed[] current = feeds;
+        Feed[] left;
+        int index = indexOf(current, observer);
+
+        if (index < 0)
+        {
+            return;
+        }
+
+        left = new Feed[current.length - 1];
+        System.arraycopy(current, 0, left, 0, index);
+        System.arraycopy(current, index + 1, left, index,
+            left.length - index);
+        feeds = left;
+        current[index].buffer.close();
+    }
+
+    /**
+     * Returns the number of fixes an observer has missed through falling
+     * behind, 0 if it is not registered
+     * @param observer as LocatorObs
+     * @return count of fixes dropped
+     */
+    public long getDropped(LocatorObs observer)
+    {
+        Feed[] current = feeds;
+        int index = indexOf(current, observer);
+
+        if (index < 0)
+        {
+            return 0;
+        }
+
+        return current[index].buffer.getDropped();
     }
 
     /**
-     * Removes an observer to be notified when location received
+     * Returns the number of fixes an observer has failed on by throwing
+     * anything but an IllegalArgumentException, 0 if it is not registered
      * @param observer as LocatorObs
+     * @return count of fixes failed on
      */
-    public void removeObs(LocatorObs observer)
+    public long getFailed(LocatorObs observer)
     {
-        obs.remove(observer);
+        Feed[] current = feeds;
+        int index = indexOf(current, observer);
+
+        if (index < 0)
+        {
+            return 0;
+        }
+
+        return current[index].failed;
+    }
+
+    private static int indexOf(Feed[] current, LocatorObs observer)
+    {
+        for (int ii = 0; ii < current.length; ii++)
+        {
+            if (current[ii].observer.equals(observer))
+            {
+                return ii;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * An observer and the buffer, filters and thread it is fed from.
+     * Fixes are taken from the buffer a batch at a time and filtered,
+     * then handed over whole or a fix at a time
+     */
+    private static class Feed implements Runnable
+    {
+        private LocatorObs observer;
+        private BatchLocatorObs batchObs;
+        private FixBuffer buffer;
+        private FixBatch batch;
+        private FilterChain filters;
+        private Thread thread;
+        //only changed by the feed's thread
+        private volatile long failed;
+
+        private Feed(LocatorObs observer, FixBuffer buffer,
+            FilterChain filters)
+        {
+            this.observer = observer;
+            if (observer instanceof BatchLocatorObs)
+            {
+                this.batchObs = (BatchLocatorObs)observer;
+            }
+            this.buffer = buffer;
+            this.batch = new FixBatch(buffer.getCapacity());
+            this.filters = filters;
+            this.thread = new Thread(this, "locator-" +
+                observer.getClass().getSimpleName());
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run()
+        {
+            while (!buffer.isClosed())
+            {
+                while (!buffer.isClosed() && batch.fill(buffer) > 0)
+                {
+                    if (filters == null || filters.filter(batch) > 0)
+                    {
+                        deliver();
+                    }
+                }
+                buffer.await();
+            }
+        }
+
+        private void deliver()
+        {
+            if (batchObs != null)
+            {
+                try
+                {
+                    batchObs.gpsBatch(batch);
+                }
+                catch (IllegalArgumentException e)
+                {
+                    //a batch the observer cannot handle is skipped
+                }
+                catch (RuntimeException e)
+                {
+                    failed += batch.getCount();
+                }
+                return;
+            }
+
+            for (int ii = 0; ii < batch.getCount(); ii++)
+            {
+                try
+                {
+                    observer.gpsChanged(batch.getLat(ii), batch.getLon(ii),
+                        batch.getAlt(ii));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    //a fix the observer cannot handle, such as one with
+                    //invalid coordinates, is skipped
+                }
+                catch (RuntimeException e)
+                {
+                    failed++;
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,14 @@
 package main.model;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
 
 /**
  * Abstract superclass for classes that can be used to represent a path
- * between 2 points of a sphere
+ * between 2 points of a sphere. The straight line paths of a part can be
+ * walked in place by iterator, spliterator or visitor, getSegments copies
+ * them all into a new list
  * 
  * @author Owen Frere
  */
@@ -14,8 +18,43 @@ public abstract class TrekPart
     public abstract Waypoint getEnd();
     public abstract double getLength();
     public abstract List<Segment> getSegments();
+    public abstract int getSegmentCount();
     public abstract String getDesc();
     public abstract double getAltIncrease();
     public abstract double getAltDecrease();
     public abstract boolean equals(Object obj);
+
+    /**
+     * Returns an Iterator over the straight line paths of the part in
+     * order, walking sub-routes in place
+     * @return iterator of segments
+     */
+    public Iterator<Segment> segmentIterator()
+    {
+        return new SegmentIterator(this, 0, getSegmentCount());
+    }
+
+    /**
+     * Returns a Spliterator over the straight line paths of the part in
+     * order, splitting for parallel streams
+     * @return spliterator of segments
+     */
+    public Spliterator<Segment> segmentSpliterator()
+    {
+        return new SegmentSpliterator(this, 0, getSegmentCount());
+    }
+
+    /**
+     * Visits each straight line path of the part in order
+     * @param visitor as SegmentVisitor
+     */
+    public void forEachSegment(SegmentVisitor visitor)
+    {
+        Iterator<Segment> iter = segmentIterator();
+
+        while (iter.hasNext())
+        {
+            visitor.visit(iter.next());
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package main.model;
+
+/**
+ * Immutable snapshot of how far along a CalculatedTrek the trekker is.
+ * A trek publishes a new snapshot each time a waypoint is reached, so
+ * every value read from one snapshot belongs to the same moment, however
+ * many threads read it.
+ *
+ * @author Owen Frere
+ */
+public final class TrekProgress
+{
+    private final int reached;
+    private final int segmentsLeft;
+    private final Waypoint nextWP;
+    private final double distanceLeft;
+    private final double climbLeft;
+    private final double descentLeft;
+
+    /**
+     * Constructor
+     * @param reached as int, segments started
+     * @param segmentsLeft as int, segments not yet started
+     * @param nextWP as Waypoint
+     * @param distanceLeft as double
+     * @param climbLeft as double
+     * @param descentLeft as double
+     */
+    TrekProgress(int reached, int segmentsLeft, Waypoint nextWP,
+        double distanceLeft, double climbLeft, double descentLeft)
+    {
+        this.reached = reached;
+        this.segmentsLeft = segmentsLeft;
+        this.nextWP = nextWP;
+        this.distanceLeft = distanceLeft;
+        this.climbLeft = climbLeft;
+        this.descentLeft = descentLeft;
+    }
+
+    /**
+     * Returns the index of the segment the trekker is walking, -1 until
+     * the start of the trek is reached
+     * @return index of current segment
+     */
+    public int getCurrentIndex()
+    {
+        return reached - 1;
+    }
+
+    /**
+     * Returns the number of segments not yet started
+     * @return count of segments left
+     */
+    public int getSegmentsLeft()
+    {
+        return segmentsLeft;
+    }
+
+    /**
+     * Returns the next waypoint to reach
+     * @return start of next path, or end of trek
+     */
+    public Waypoint getNextWP()
+    {
+        return nextWP;
+    }
+
+    /**
+     * Returns the horizontal distance left after the current segment
+     * @return horizontal distance remaining
+     */
+    public double getDistanceLeft()
+    {
+        return distanceLeft;
+    }
+
+    /**
+     * Returns the total climb left after the current segment
+     * @return total climb remaining
+     */
+    public double getClimbLeft()
+    {
+        return climbLeft;
+    }
+
+    /**
+     * Returns the total descent left after the current segment
+     * @return total descent remaining
+     */
+    public double getDescentLeft()
+    {
+        return descentLeft;
+    }
+
+    /**
+     * Returns a String describing the state of the snapshot
+     * @return description of object's state
+     */
+    public String toString()
+    {
+        return "Progress: " + segmentsLeft + " segments and " +
+            distanceLeft + "m to go (" + climbLeft + "C/" + descentLeft +
+            "D), next waypoint " + nextWP;
+    }
+}
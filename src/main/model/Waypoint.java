@@ -3,19 +3,20 @@ package main.model;
 /**
  * Class representing a 3D location on a sphere by latitude, longitude, 
  * and altitude. Latitude and longitude are restricted to range [-180,180]
- * but altitude is unrestricted
+ * but altitude is unrestricted. Waypoints are immutable, so they can be
+ * shared between threads and routes without copying
  * 
  * @author Owen Frere
  * @throws IllegalArgumentException (unchecked) for null imports or invalid
  * coordinates
  */
-public class Waypoint
+public final class Waypoint
 {
     //float comparison tolerance
     public static final double COMPTOL = 0.00000001;
 
-    private GPSLoc gpsLoc;
-    private double altitude;
+    private final GPSLoc gpsLoc;
+    private final double altitude;
 
     /**
      * Constructor
@@ -88,7 +89,7 @@ public class Waypoint
     {
         Waypoint tempWP = null;
 
-        if (obj instanceof GPSLoc)
+        if (obj instanceof Waypoint)
         {
             tempWP = (Waypoint)obj;
             if (Math.abs(altitude - tempWP.getAlt()) < COMPTOL)
@@ -1,6 +1,7 @@
 package main.view;
 
 import java.text.DecimalFormat;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Scanner;
 
@@ -41,6 +42,8 @@ public class DetailListView extends View
     {
         DecimalFormat mDf = Settings.getInstance().getMFormat();
         DecimalFormat cDf = Settings.getInstance().getCFormat();
+        Iterator<Segment> segIter;
+        Segment s;
 
         this.route = detailRoute;
 
@@ -53,8 +56,10 @@ public class DetailListView extends View
                 ": " + route.getDesc() + ".\nStart(Lat,Lon,Alt)"
                 + " description End(Lat, Lon, Alt)\n"); 
 
-            for (Segment s : detailRoute.getSegments())
+            segIter = detailRoute.segmentIterator();
+            while (segIter.hasNext())
             {
+                s = segIter.next();
                 System.out.println("(" + cDf.format(s.getStart().getLat())
                 + "," + cDf.format(s.getStart().getLon())
                 + "," + mDf.format(s.getStart().getAlt()) + ")"
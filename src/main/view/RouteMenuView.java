@@ -14,11 +14,14 @@ import main.model.*;
 */
 public class RouteMenuView extends View
 {
+    public static final int PAGE_SIZE = 10;
+
     private Controller con;
     private Route route;
     private CalculatedTrek cTrek;
     private Map<String, Route> rteMap;
     private Waypoint lastKnown;
+    private int page;
 
     /**
      * Constructor
@@ -50,24 +53,43 @@ public class RouteMenuView extends View
         //clear screen
         System.out.println("\033[2J\033[H");
 
-        System.out.println("--- Known Routes ---\n Name: Description. " +
-            "Length (Climb/Descent)\n");
-
         try
         {
             if (rteMap.size() == 0)
             {
+                displayKnownHeader();
                 System.out.println("No valid routes in list. Please try "
                     + "loading again.");
             }
+            //once the trekker's location is known list the nearest first
+            else if (lastKnown != null && con.getStartIndex() != null)
+            {
+                System.out.println("--- Nearest Routes, page " + (page + 1)
+                    + " ---\n Distance to start - Name: Description. " +
+                    "Length (Climb/Descent)\n");
+                for (RouteHit hit : con.getStartIndex().page(lastKnown,
+                    page, PAGE_SIZE))
+                {
+                    displayRoute(df.format(hit.getDistance()) + "m - " +
+                        hit.getName(), hit.getRoute(), df);
+                }
+            }
+            //a lazy catalogue lists its summaries without building routes
+            else if (rteMap instanceof RouteCatalogue)
+            {
+                displayKnownHeader();
+                for (RouteSummary sum :
+                    ((RouteCatalogue)rteMap).getSummaries())
+                {
+                    displayRoute(sum.getName(), sum, df);
+                }
+            }
             else
             {
+                displayKnownHeader();
                 for (Route rte : rteMap.values())
                 {
-                    System.out.println(rte.getName() + ": " + rte.getDesc() +
-                        ". Length of " + df.format(rte.getLength()) + "m (" + 
-                        df.format(rte.getAltIncrease()) + "m/" + 
-                        df.format(Math.abs(rte.getAltDecrease())) + "m)");
+                    displayRoute(rte.getName(), rte, df);
                 }
             }
         }
@@ -79,6 +101,26 @@ public class RouteMenuView extends View
         demoMenu();
     }
 
+    private void displayKnownHeader()
+    {
+        System.out.println("--- Known Routes ---\n Name: Description. " +
+            "Length (Climb/Descent)\n");
+    }
+
+    /**
+     * Displays a single line of the route list
+     * @param name as String
+     * @param tp as TrekPart
+     * @param df as DecimalFormat
+     */
+    private void displayRoute(String name, TrekPart tp, DecimalFormat df)
+    {
+        System.out.println(name + ": " + tp.getDesc() +
+            ". Length of " + df.format(tp.getLength()) + "m (" + 
+            df.format(tp.getAltIncrease()) + "m/" + 
+            df.format(Math.abs(tp.getAltDecrease())) + "m)");
+    }
+
     /**
      * Updates the Route List in the view and redisplay
      */
@@ -87,11 +129,32 @@ public class RouteMenuView extends View
         displayView(cTrek, route, rteMap, lastKnown);
     }
 
+    /**
+     * Updates the device location in the view and redisplay
+     * @param lastKnown as Waypoint
+     */
+    @Override
+    public void updateLastKnown(Waypoint lastKnown)
+    {
+        displayView(cTrek, route, rteMap, lastKnown);
+    }
+
+    /**
+     * Button to move between pages of the nearest routes
+     * @param step as int, pages to move
+     */
+    public void turnPage(int step)
+    {
+        page = Math.max(0, page + step);
+        displayView(cTrek, route, rteMap, lastKnown);
+    }
+
     /**
      * Button to initiates a data load by the controller
      */
     public void loadRouteData()
     {
+        page = 0;
         rteMap = con.loadRouteData();
         updateRteMap(rteMap);
     }
@@ -117,6 +180,14 @@ public class RouteMenuView extends View
         {
             loadRouteData();
         }
+        else if (bin.equals("n"))
+        {
+            turnPage(1);
+        }
+        else if (bin.equals("p"))
+        {
+            turnPage(-1);
+        }
         else if (con.getRoutes().containsKey(bin))
         {
             goToDetailList(con.getRoutes().get(bin));
@@ -133,8 +204,9 @@ public class RouteMenuView extends View
         Scanner sc = new Scanner(System.in);
         String bin;
 
-        System.out.println("\n\nDemo Menu\n1 - Load Route Data\nRoute " +
-            "name - show details");
+        System.out.println("\n\nDemo Menu\n1 - Load Route Data\nn/p - " +
+            "Next/previous page of nearest routes\nRoute name - show " +
+            "details");
 
         bin = sc.next();
 
@@ -20,8 +20,9 @@ public class TrackingView extends View
     Controller con;
     GeoUtils geoUtil;
 
-    CalculatedTrek cTrek;
-    Waypoint lastKnown;
+    //set by the tracking thread, read by the menu thread
+    volatile CalculatedTrek cTrek;
+    volatile Waypoint lastKnown;
     Route route;
     Map<String, Route> rteMap;
 
@@ -49,6 +50,8 @@ public class TrackingView extends View
     {
         DecimalFormat mDf = Settings.getInstance().getMFormat();
         DecimalFormat cDf = Settings.getInstance().getCFormat();
+        //displayed from both the tracking and menu threads
+        TrackProjector projector = new TrackProjector();
 
         this.cTrek = cTrek;
         this.lastKnown = lastKnown;
@@ -71,18 +74,26 @@ public class TrackingView extends View
         //print trek information
         try
         {
-            Waypoint nextWP = cTrek.getNextWP();
-            double distanceLeft = cTrek.getDistanceLeft();
-            double climbLeft = cTrek.getClimbLeft();
-            double descentLeft = cTrek.getDescentLeft();
+            //one snapshot so every value shown agrees
+            TrekProgress progress = cTrek.getProgress();
+            Waypoint nextWP = progress.getNextWP();
+            double distanceLeft = progress.getDistanceLeft();
+            double climbLeft = progress.getClimbLeft();
+            double descentLeft = progress.getDescentLeft();
             double altToNextWP = 0;
 
-            //add distances from lastKnown to next wp
+            //snap lastKnown onto the trek for the distance left
             try
             {
-                distanceLeft += geoUtil.calcMetresDistance(
-                    lastKnown.getLat(), lastKnown.getLon(), 
-                    nextWP.getLat(), nextWP.getLon());
+                projector.project(cTrek, progress, lastKnown.getLat(),
+                    lastKnown.getLon());
+                distanceLeft = projector.getRemaining();
+                if (projector.getOffTrack() >
+                    Settings.getInstance().getHLimit())
+                {
+                    System.out.println("Off route by " +
+                        mDf.format(projector.getOffTrack()) + "m\n");
+                }
                 altToNextWP = nextWP.getAlt() - lastKnown.getAlt();
                 if (altToNextWP < 0)
                 {
@@ -104,12 +115,13 @@ public class TrackingView extends View
                 mDf.format(climbLeft) + "/" + mDf.format(descentLeft) + 
                 ")\n";
             
-            if (cTrek.getSegments().size() > 0)
+            if (progress.getSegmentsLeft() > 0)
             {
                 outputStr = outputStr + "Next path starts at: (" + 
                 cDf.format(nextWP.getLat()) + ", " +  cDf.format(
                 nextWP.getLon()) + ", " + mDf.format(nextWP.getAlt()) +
-                ") and is: " + cTrek.getSegments().get(0).getDesc();
+                ") and is: " + cTrek.getSegmentDesc(
+                progress.getCurrentIndex() + 1);
             }
             else
             {
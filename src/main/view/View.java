@@ -36,6 +36,14 @@ public abstract class View
     {
     }
 
+    /**
+     * Updates the device location in the view and redisplay
+     * @param lastKnown as Waypoint
+     */
+    public void updateLastKnown(Waypoint lastKnown)
+    {
+    }
+
     /**
      * Updates the Route List in the view and redisplay
      * @param rteMap as Map<String, Route>